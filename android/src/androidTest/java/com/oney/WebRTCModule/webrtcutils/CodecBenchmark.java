@@ -0,0 +1,830 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.DataChannel;
+import org.webrtc.IceCandidate;
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.MediaConstraints;
+import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpCapabilities;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+import org.webrtc.RtpTransceiver;
+import org.webrtc.SdpObserver;
+import org.webrtc.SessionDescription;
+import org.webrtc.VideoCodecInfo;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoSource;
+import org.webrtc.VideoTrack;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Benchmarks the software video codecs by sending synthetic (or pre-recorded I420) frames through a pair of
+ * PeerConnections connected over the loopback interface, once per codec, resolution and bitrate. No camera or
+ * network is needed, so it can run on an emulator, from {@link CodecBenchmarkTest}, to catch regressions when
+ * the WebRTC dependency changes.
+ *
+ * The software codecs are implemented natively and can't be driven from Java directly, hence the loopback
+ * call. Encode / decode times come from the stats of the call, CPU time is measured for the whole process.
+ * Each frame carries its index in its top rows, so decoded frames can be compared with the frames that were
+ * sent to compute the PSNR.
+ *
+ * {@link PeerConnectionFactory#initialize} must have been called before running the benchmark. Runs block,
+ * so they shouldn't happen on a thread used for anything else.
+ */
+public class CodecBenchmark {
+    private static final String TAG = "CodecBenchmark";
+
+    private static final long CONNECT_TIMEOUT_MS = 10000;
+    private static final long OPERATION_TIMEOUT_MS = 5000;
+
+    // Every Nth received frame is kept for computing the PSNR.
+    private static final int PSNR_SAMPLE_INTERVAL = 10;
+    private static final int MAX_PSNR_SAMPLES = 60;
+
+    private static final int INDEX_BITS = 20;
+
+    // Recorded input is kept in memory, up to this size.
+    private static final long MAX_INPUT_BYTES = 64 * 1024 * 1024;
+
+    public static class Resolution {
+        public final int width;
+        public final int height;
+
+        public Resolution(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public static class Config {
+        public List<Resolution> resolutions = new ArrayList<>();
+        public List<Integer> bitrates = new ArrayList<>();
+        public int frameRate = 30;
+        public long durationMs = 5000;
+        public long warmupMs = 1000;
+
+        /**
+         * Names of the codecs to run, all codecs if empty.
+         */
+        public List<String> codecs = new ArrayList<>();
+
+        /**
+         * Optional raw I420 file to use instead of the synthetic frames. The resolutions are ignored then and
+         * the input resolution is used instead.
+         */
+        @Nullable
+        public String inputFile;
+        public int inputWidth;
+        public int inputHeight;
+
+        public Config() {
+            resolutions.add(new Resolution(320, 180));
+            resolutions.add(new Resolution(640, 360));
+            resolutions.add(new Resolution(1280, 720));
+            bitrates.add(300000);
+            bitrates.add(1000000);
+            bitrates.add(2500000);
+        }
+    }
+
+    public static class Result {
+        public String codec;
+        public Map<String, String> codecParameters;
+        public String encoderImplementation;
+        public String decoderImplementation;
+        public int width;
+        public int height;
+        public int targetBitrate;
+        public double bitrate;
+        public long framesSent;
+        public long framesEncoded;
+        public long framesDecoded;
+        public double encodeFps;
+        public double decodeFps;
+        public double encodeTimeMs;
+        public double decodeTimeMs;
+        public double cpuTimeMs;
+        public double cpuUsage;
+
+        /**
+         * Mean luma PSNR in dB of the sampled frames, NaN if no frames could be compared.
+         */
+        public double psnr = Double.NaN;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s %dx%d @ %dkbps: %.1fkbps, encode %.1ffps %.2fms, decode %.1ffps %.2fms, cpu %.0f%%, "
+                            + "psnr %.2fdB",
+                    codec,
+                    width,
+                    height,
+                    targetBitrate / 1000,
+                    bitrate / 1000,
+                    encodeFps,
+                    encodeTimeMs,
+                    decodeFps,
+                    decodeTimeMs,
+                    cpuUsage * 100,
+                    psnr);
+        }
+    }
+
+    /**
+     * Runs every configured combination and returns the results. Combinations which fail are logged and
+     * skipped.
+     */
+    public List<Result> run(Config config) throws IOException {
+        FrameSource input = null;
+        if (config.inputFile != null) {
+            input = RecordedFrameSource.load(config.inputFile, config.inputWidth, config.inputHeight);
+        }
+
+        SoftwareVideoEncoderFactoryProxy encoderFactory = new SoftwareVideoEncoderFactoryProxy();
+        PeerConnectionFactory.Options options = new PeerConnectionFactory.Options();
+        // Loopback is ignored by default.
+        options.networkIgnoreMask = 0;
+        PeerConnectionFactory factory = PeerConnectionFactory.builder()
+                                                .setOptions(options)
+                                                .setVideoEncoderFactory(encoderFactory)
+                                                .setVideoDecoderFactory(new SoftwareVideoDecoderFactoryProxy())
+                                                .createPeerConnectionFactory();
+
+        List<Result> results = new ArrayList<>();
+        try {
+            for (VideoCodecInfo codec : encoderFactory.getSupportedCodecs()) {
+                if (!config.codecs.isEmpty() && !containsIgnoreCase(config.codecs, codec.name)) {
+                    continue;
+                }
+
+                RtpCapabilities.CodecCapability capability = findCapability(factory, codec);
+                if (capability == null) {
+                    Log.w(TAG, "No RTP capability for " + codec.name + ", skipping");
+                    continue;
+                }
+
+                List<FrameSource> sources = new ArrayList<>();
+                if (input != null) {
+                    sources.add(input);
+                } else {
+                    for (Resolution resolution : config.resolutions) {
+                        sources.add(new SyntheticFrameSource(resolution.width, resolution.height));
+                    }
+                }
+
+                for (FrameSource source : sources) {
+                    for (int bitrate : config.bitrates) {
+                        try {
+                            Result result = runOne(factory, config, codec, capability, source, bitrate);
+                            Log.i(TAG, result.toString());
+                            results.add(result);
+                        } catch (Exception e) {
+                            Log.e(TAG,
+                                    "Failed " + codec.name + " " + source.getWidth() + "x" + source.getHeight() + " @ "
+                                            + bitrate,
+                                    e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            factory.dispose();
+        }
+
+        return results;
+    }
+
+    private Result runOne(PeerConnectionFactory factory,
+            Config config,
+            VideoCodecInfo codec,
+            RtpCapabilities.CodecCapability capability,
+            FrameSource source,
+            int bitrate) throws Exception {
+        VideoSource videoSource = factory.createVideoSource(false);
+        VideoTrack track = factory.createVideoTrack("benchmark", videoSource);
+        LoopbackObserver senderObserver = new LoopbackObserver();
+        LoopbackObserver receiverObserver = new LoopbackObserver();
+        PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(Collections.emptyList());
+        PeerConnection sender = factory.createPeerConnection(rtcConfig, senderObserver);
+        PeerConnection receiver = factory.createPeerConnection(rtcConfig, receiverObserver);
+        if (sender == null || receiver == null) {
+            throw new IllegalStateException("Failed to create PeerConnections");
+        }
+
+        DecodedFrameSink sink = new DecodedFrameSink();
+        VideoTrack remoteTrack = null;
+        try {
+            RtpTransceiver transceiver = sender.addTransceiver(track,
+                    new RtpTransceiver.RtpTransceiverInit(RtpTransceiver.RtpTransceiverDirection.SEND_ONLY));
+            transceiver.setCodecPreferences(Collections.singletonList(capability));
+
+            RtpSender rtpSender = transceiver.getSender();
+            RtpParameters parameters = rtpSender.getParameters();
+            for (RtpParameters.Encoding encoding : parameters.encodings) {
+                encoding.minBitrateBps = bitrate;
+                encoding.maxBitrateBps = bitrate;
+                encoding.maxFramerate = config.frameRate;
+            }
+            // Keep the resolution, so decoded frames can be compared with the sent ones.
+            parameters.degradationPreference = RtpParameters.DegradationPreference.MAINTAIN_RESOLUTION;
+            rtpSender.setParameters(parameters);
+            sender.setBitrate(bitrate, bitrate, bitrate);
+
+            negotiate(sender, senderObserver, receiver, receiverObserver);
+            if (!senderObserver.connected.await(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Loopback connection timed out");
+            }
+
+            remoteTrack = (VideoTrack) receiver.getTransceivers().get(0).getReceiver().track();
+            remoteTrack.addSink(sink);
+
+            CapturerObserver capturerObserver = videoSource.getCapturerObserver();
+            capturerObserver.onCapturerStarted(true);
+
+            long frameIntervalNs = TimeUnit.SECONDS.toNanos(1) / config.frameRate;
+            int warmupFrames = (int) (config.warmupMs * config.frameRate / 1000);
+            int totalFrames = warmupFrames + (int) (config.durationMs * config.frameRate / 1000);
+
+            Snapshot start = null;
+            long startNs = System.nanoTime();
+            for (int i = 0; i < totalFrames; i++) {
+                if (i == warmupFrames) {
+                    start = new Snapshot(sender, receiver);
+                    sink.startIndex = i;
+                }
+
+                long frameTimeNs = startNs + i * frameIntervalNs;
+                long waitNs = frameTimeNs - System.nanoTime();
+                if (waitNs > 0) {
+                    Thread.sleep(waitNs / 1000000, (int) (waitNs % 1000000));
+                }
+
+                VideoFrame frame = new VideoFrame(source.createFrame(i), 0, frameTimeNs);
+                capturerObserver.onFrameCaptured(frame);
+                frame.release();
+            }
+            Snapshot end = new Snapshot(sender, receiver);
+            capturerObserver.onCapturerStopped();
+
+            if (start == null) {
+                throw new IllegalArgumentException("The duration is too short");
+            }
+
+            Result result = new Result();
+            result.codec = codec.name;
+            result.codecParameters = codec.params;
+            result.encoderImplementation = end.encoderImplementation;
+            result.decoderImplementation = end.decoderImplementation;
+            result.width = source.getWidth();
+            result.height = source.getHeight();
+            result.targetBitrate = bitrate;
+            result.framesSent = totalFrames - warmupFrames;
+
+            double seconds = (end.wallTimeMs - start.wallTimeMs) / 1000.0;
+            result.framesEncoded = end.framesEncoded - start.framesEncoded;
+            result.framesDecoded = end.framesDecoded - start.framesDecoded;
+            result.bitrate = (end.bytesSent - start.bytesSent) * 8 / seconds;
+            result.encodeFps = result.framesEncoded / seconds;
+            result.decodeFps = result.framesDecoded / seconds;
+            if (result.framesEncoded > 0) {
+                result.encodeTimeMs = (end.totalEncodeTime - start.totalEncodeTime) * 1000 / result.framesEncoded;
+            }
+            if (result.framesDecoded > 0) {
+                result.decodeTimeMs = (end.totalDecodeTime - start.totalDecodeTime) * 1000 / result.framesDecoded;
+            }
+            result.cpuTimeMs = end.cpuTimeMs - start.cpuTimeMs;
+            result.cpuUsage = result.cpuTimeMs / (end.wallTimeMs - start.wallTimeMs);
+            result.psnr = sink.computePsnr(source);
+
+            return result;
+        } finally {
+            if (remoteTrack != null) {
+                remoteTrack.removeSink(sink);
+            }
+            sender.dispose();
+            receiver.dispose();
+            track.dispose();
+            videoSource.dispose();
+        }
+    }
+
+    @Nullable
+    private static RtpCapabilities.CodecCapability findCapability(PeerConnectionFactory factory, VideoCodecInfo codec) {
+        RtpCapabilities capabilities =
+                factory.getRtpSenderCapabilities(MediaStreamTrack.MediaType.MEDIA_TYPE_VIDEO);
+        RtpCapabilities.CodecCapability byName = null;
+        for (RtpCapabilities.CodecCapability capability : capabilities.codecs) {
+            if (!capability.name.equalsIgnoreCase(codec.name)) {
+                continue;
+            }
+            if (capability.parameters.equals(codec.params)) {
+                return capability;
+            }
+            if (byName == null) {
+                byName = capability;
+            }
+        }
+
+        return byName;
+    }
+
+    private static boolean containsIgnoreCase(List<String> list, String value) {
+        for (String item : list) {
+            if (item.equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Exchanges the offer and the answer once their candidates are gathered, so the descriptions carry them all
+     * and no candidate has to be added before the remote description is set.
+     */
+    private static void negotiate(PeerConnection sender,
+            LoopbackObserver senderObserver,
+            PeerConnection receiver,
+            LoopbackObserver receiverObserver) throws Exception {
+        SessionDescription offer = new SdpLatch().create(sender, true);
+        new SdpLatch().set(sender, offer, true);
+        new SdpLatch().set(receiver, senderObserver.awaitGathered(sender), false);
+        SessionDescription answer = new SdpLatch().create(receiver, false);
+        new SdpLatch().set(receiver, answer, true);
+        new SdpLatch().set(sender, receiverObserver.awaitGathered(receiver), false);
+    }
+
+    /**
+     * Turns the asynchronous SDP operations into blocking ones.
+     */
+    private static class SdpLatch implements SdpObserver {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private SessionDescription created;
+        private String error;
+
+        SessionDescription create(PeerConnection pc, boolean offer) throws Exception {
+            if (offer) {
+                pc.createOffer(this, new MediaConstraints());
+            } else {
+                pc.createAnswer(this, new MediaConstraints());
+            }
+            await();
+
+            return created;
+        }
+
+        void set(PeerConnection pc, SessionDescription sdp, boolean local) throws Exception {
+            if (local) {
+                pc.setLocalDescription(this, sdp);
+            } else {
+                pc.setRemoteDescription(this, sdp);
+            }
+            await();
+        }
+
+        private void await() throws Exception {
+            if (!latch.await(OPERATION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("SDP operation timed out");
+            }
+            if (error != null) {
+                throw new IllegalStateException(error);
+            }
+        }
+
+        @Override
+        public void onCreateSuccess(SessionDescription sdp) {
+            created = sdp;
+            latch.countDown();
+        }
+
+        @Override
+        public void onSetSuccess() {
+            latch.countDown();
+        }
+
+        @Override
+        public void onCreateFailure(String s) {
+            error = s;
+            latch.countDown();
+        }
+
+        @Override
+        public void onSetFailure(String s) {
+            error = s;
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Waits for one end of the loopback call to gather its candidates and to connect.
+     */
+    private static class LoopbackObserver implements PeerConnection.Observer {
+        final CountDownLatch connected = new CountDownLatch(1);
+        final CountDownLatch gathered = new CountDownLatch(1);
+
+        /**
+         * Returns the local description of the PeerConnection, with its candidates, once they are gathered.
+         */
+        SessionDescription awaitGathered(PeerConnection pc) throws Exception {
+            if (!gathered.await(OPERATION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("ICE gathering timed out");
+            }
+
+            return pc.getLocalDescription();
+        }
+
+        @Override
+        public void onIceCandidate(IceCandidate candidate) {}
+
+        @Override
+        public void onIceConnectionChange(PeerConnection.IceConnectionState newState) {
+            if (newState == PeerConnection.IceConnectionState.CONNECTED
+                    || newState == PeerConnection.IceConnectionState.COMPLETED) {
+                connected.countDown();
+            }
+        }
+
+        @Override
+        public void onSignalingChange(PeerConnection.SignalingState newState) {}
+
+        @Override
+        public void onIceConnectionReceivingChange(boolean receiving) {}
+
+        @Override
+        public void onIceGatheringChange(PeerConnection.IceGatheringState newState) {
+            if (newState == PeerConnection.IceGatheringState.COMPLETE) {
+                gathered.countDown();
+            }
+        }
+
+        @Override
+        public void onIceCandidatesRemoved(IceCandidate[] candidates) {}
+
+        @Override
+        public void onAddStream(MediaStream stream) {}
+
+        @Override
+        public void onRemoveStream(MediaStream stream) {}
+
+        @Override
+        public void onDataChannel(DataChannel dataChannel) {}
+
+        @Override
+        public void onRenegotiationNeeded() {}
+    }
+
+    /**
+     * Counters of both ends of the call at one point in time.
+     */
+    private static class Snapshot {
+        final long wallTimeMs = SystemClock.elapsedRealtime();
+        final long cpuTimeMs = Process.getElapsedCpuTime();
+        long framesEncoded;
+        long framesDecoded;
+        double bytesSent;
+        double totalEncodeTime;
+        double totalDecodeTime;
+        String encoderImplementation;
+        String decoderImplementation;
+
+        Snapshot(PeerConnection sender, PeerConnection receiver) throws Exception {
+            for (RTCStats stats : getStats(sender).getStatsMap().values()) {
+                if ("outbound-rtp".equals(stats.getType())) {
+                    Map<String, Object> members = stats.getMembers();
+                    framesEncoded += getNumber(members, "framesEncoded").longValue();
+                    bytesSent += getNumber(members, "bytesSent").doubleValue();
+                    totalEncodeTime += getNumber(members, "totalEncodeTime").doubleValue();
+                    encoderImplementation = (String) members.get("encoderImplementation");
+                }
+            }
+            for (RTCStats stats : getStats(receiver).getStatsMap().values()) {
+                if ("inbound-rtp".equals(stats.getType())) {
+                    Map<String, Object> members = stats.getMembers();
+                    framesDecoded += getNumber(members, "framesDecoded").longValue();
+                    totalDecodeTime += getNumber(members, "totalDecodeTime").doubleValue();
+                    decoderImplementation = (String) members.get("decoderImplementation");
+                }
+            }
+        }
+
+        private static RTCStatsReport getStats(PeerConnection pc) throws Exception {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<RTCStatsReport> report = new AtomicReference<>();
+            pc.getStats(r -> {
+                report.set(r);
+                latch.countDown();
+            });
+            if (!latch.await(OPERATION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("getStats timed out");
+            }
+
+            return report.get();
+        }
+
+        private static Number getNumber(Map<String, Object> members, String name) {
+            Object value = members.get(name);
+
+            return value instanceof Number ? (Number) value : 0;
+        }
+    }
+
+    /**
+     * Keeps a copy of the luma plane of every Nth decoded frame.
+     */
+    private static class DecodedFrameSink implements VideoSink {
+        volatile int startIndex = Integer.MAX_VALUE;
+        private final List<Integer> indices = new ArrayList<>();
+        private final List<byte[]> samples = new ArrayList<>();
+        private int width;
+        private int height;
+
+        @Override
+        public void onFrame(VideoFrame frame) {
+            VideoFrame.I420Buffer buffer = frame.getBuffer().toI420();
+            if (buffer == null) {
+                return;
+            }
+
+            try {
+                int index = readIndex(buffer);
+                if (index < startIndex || index % PSNR_SAMPLE_INTERVAL != 0) {
+                    return;
+                }
+
+                synchronized (this) {
+                    if (samples.size() >= MAX_PSNR_SAMPLES) {
+                        return;
+                    }
+
+                    width = buffer.getWidth();
+                    height = buffer.getHeight();
+                    indices.add(index);
+                    samples.add(copyLuma(buffer));
+                }
+            } finally {
+                buffer.release();
+            }
+        }
+
+        synchronized double computePsnr(FrameSource source) {
+            if (width != source.getWidth() || height != source.getHeight()) {
+                return Double.NaN;
+            }
+
+            double sum = 0;
+            int count = 0;
+            byte[] reference = new byte[width * height];
+            for (int i = 0; i < samples.size(); i++) {
+                source.fillLuma(indices.get(i), reference);
+                byte[] decoded = samples.get(i);
+                double squaredError = 0;
+                for (int j = 0; j < reference.length; j++) {
+                    int diff = (reference[j] & 0xff) - (decoded[j] & 0xff);
+                    squaredError += diff * diff;
+                }
+                double mse = squaredError / reference.length;
+                sum += mse > 0 ? 10 * Math.log10(255.0 * 255.0 / mse) : 99;
+                count++;
+            }
+
+            return count > 0 ? sum / count : Double.NaN;
+        }
+
+        private static byte[] copyLuma(VideoFrame.I420Buffer buffer) {
+            int width = buffer.getWidth();
+            int height = buffer.getHeight();
+            int stride = buffer.getStrideY();
+            ByteBuffer data = buffer.getDataY();
+            byte[] luma = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                data.position(y * stride);
+                data.get(luma, y * width, width);
+            }
+
+            return luma;
+        }
+
+        private static int readIndex(VideoFrame.I420Buffer buffer) {
+            int blockSize = indexBlockSize(buffer.getWidth());
+            int stride = buffer.getStrideY();
+            ByteBuffer data = buffer.getDataY();
+            int index = 0;
+            for (int bit = 0; bit < INDEX_BITS; bit++) {
+                // Average the center of the block, the edges get blurred by the encoder.
+                int sum = 0;
+                int count = 0;
+                for (int y = blockSize / 4; y < blockSize * 3 / 4; y++) {
+                    for (int x = bit * blockSize + blockSize / 4; x < bit * blockSize + blockSize * 3 / 4; x++) {
+                        sum += data.get(y * stride + x) & 0xff;
+                        count++;
+                    }
+                }
+                if (sum / count > 128) {
+                    index |= 1 << bit;
+                }
+            }
+
+            return index;
+        }
+    }
+
+    private static int indexBlockSize(int width) {
+        return Math.max(8, width / 32);
+    }
+
+    /**
+     * Writes the frame index into the top rows of a luma plane, as one black or white block per bit.
+     */
+    private static void stampIndex(byte[] luma, int width, int index) {
+        int blockSize = indexBlockSize(width);
+        for (int bit = 0; bit < INDEX_BITS; bit++) {
+            byte value = (byte) (((index >> bit) & 1) != 0 ? 235 : 16);
+            for (int y = 0; y < blockSize; y++) {
+                int offset = y * width + bit * blockSize;
+                for (int x = 0; x < blockSize; x++) {
+                    luma[offset + x] = value;
+                }
+            }
+        }
+    }
+
+    private abstract static class FrameSource {
+        private final int width;
+        private final int height;
+
+        FrameSource(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        int getWidth() {
+            return width;
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        /**
+         * Fills the tightly packed planes of the given frame, without the index.
+         */
+        abstract void fill(int index, byte[] y, @Nullable byte[] u, @Nullable byte[] v);
+
+        /**
+         * Fills the luma plane of the given frame as it's sent, i.e. with its index.
+         */
+        void fillLuma(int index, byte[] y) {
+            fill(index, y, null, null);
+            stampIndex(y, width, index);
+        }
+
+        VideoFrame.Buffer createFrame(int index) {
+            int chromaWidth = (width + 1) / 2;
+            int chromaHeight = (height + 1) / 2;
+            byte[] y = new byte[width * height];
+            byte[] u = new byte[chromaWidth * chromaHeight];
+            byte[] v = new byte[chromaWidth * chromaHeight];
+            fill(index, y, u, v);
+            stampIndex(y, width, index);
+
+            // Allocated buffers are tightly packed.
+            JavaI420Buffer buffer = JavaI420Buffer.allocate(width, height);
+            buffer.getDataY().put(y);
+            buffer.getDataU().put(u);
+            buffer.getDataV().put(v);
+
+            return buffer;
+        }
+    }
+
+    /**
+     * A scrolling gradient with a textured box bouncing across it, which gives the encoder both smooth areas
+     * and motion to work on.
+     */
+    private static class SyntheticFrameSource extends FrameSource {
+        SyntheticFrameSource(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        void fill(int index, byte[] y, @Nullable byte[] u, @Nullable byte[] v) {
+            int width = getWidth();
+            int height = getHeight();
+            int boxSize = Math.min(width, height) / 4;
+            int boxX = bounce(index * 4, width - boxSize);
+            int boxY = bounce(index * 3, height - boxSize);
+
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    int value;
+                    if (col >= boxX && col < boxX + boxSize && row >= boxY && row < boxY + boxSize) {
+                        value = (((col - boxX) >> 3) + ((row - boxY) >> 3)) % 2 == 0 ? 40 : 220;
+                    } else {
+                        value = 32 + ((col + index * 2) * 96 / width + row * 96 / height) % 192;
+                    }
+                    y[row * width + col] = (byte) value;
+                }
+            }
+
+            if (u == null || v == null) {
+                return;
+            }
+
+            int chromaWidth = (width + 1) / 2;
+            int chromaHeight = (height + 1) / 2;
+            for (int row = 0; row < chromaHeight; row++) {
+                for (int col = 0; col < chromaWidth; col++) {
+                    u[row * chromaWidth + col] = (byte) (64 + col * 128 / chromaWidth);
+                    v[row * chromaWidth + col] = (byte) (64 + (row + index) % chromaHeight * 128 / chromaHeight);
+                }
+            }
+        }
+
+        private static int bounce(int position, int range) {
+            if (range <= 0) {
+                return 0;
+            }
+            int period = position % (2 * range);
+
+            return period < range ? period : 2 * range - period;
+        }
+    }
+
+    /**
+     * Frames read from a raw I420 file, looped when the benchmark runs longer than the recording.
+     */
+    private static class RecordedFrameSource extends FrameSource {
+        private final List<byte[]> frames;
+
+        private RecordedFrameSource(int width, int height, List<byte[]> frames) {
+            super(width, height);
+            this.frames = frames;
+        }
+
+        static RecordedFrameSource load(String path, int width, int height) throws IOException {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("The input resolution is required");
+            }
+
+            int frameSize = width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+            List<byte[]> frames = new ArrayList<>();
+            try (InputStream in = new FileInputStream(path)) {
+                while ((long) (frames.size() + 1) * frameSize <= MAX_INPUT_BYTES) {
+                    byte[] frame = new byte[frameSize];
+                    int read = 0;
+                    while (read < frameSize) {
+                        int n = in.read(frame, read, frameSize - read);
+                        if (n < 0) {
+                            break;
+                        }
+                        read += n;
+                    }
+                    if (read < frameSize) {
+                        break;
+                    }
+                    frames.add(frame);
+                }
+            }
+            if (frames.isEmpty()) {
+                throw new IOException("No complete frame in " + path);
+            }
+
+            return new RecordedFrameSource(width, height, frames);
+        }
+
+        @Override
+        void fill(int index, byte[] y, @Nullable byte[] u, @Nullable byte[] v) {
+            byte[] frame = frames.get(index % frames.size());
+            System.arraycopy(frame, 0, y, 0, y.length);
+            if (u != null && v != null) {
+                System.arraycopy(frame, y.length, u, 0, u.length);
+                System.arraycopy(frame, y.length + u.length, v, 0, v.length);
+            }
+        }
+    }
+}
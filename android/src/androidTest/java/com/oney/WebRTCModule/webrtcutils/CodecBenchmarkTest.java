@@ -0,0 +1,84 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.PeerConnectionFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs {@link CodecBenchmark} on a device or emulator:
+ *
+ *   ./gradlew connectedAndroidTest
+ *
+ * The run can be configured with instrumentation arguments, e.g.
+ * {@code -Pandroid.testInstrumentationRunnerArguments.codecs=VP8,AV1}: codecs, durationMs, warmupMs, frameRate,
+ * and inputFile / inputWidth / inputHeight for a raw I420 file on the device. Results are logged with the
+ * CodecBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CodecBenchmarkTest {
+    private static final String TAG = "CodecBenchmarkTest";
+
+    @BeforeClass
+    public static void initialize() {
+        PeerConnectionFactory.initialize(
+                PeerConnectionFactory.InitializationOptions
+                        .builder(InstrumentationRegistry.getInstrumentation().getTargetContext())
+                        .createInitializationOptions());
+    }
+
+    @Test
+    public void runBenchmark() throws Exception {
+        CodecBenchmark.Config config = parseConfig(InstrumentationRegistry.getArguments());
+
+        List<CodecBenchmark.Result> results = new CodecBenchmark().run(config);
+
+        assertFalse("No codec could be benchmarked", results.isEmpty());
+        for (CodecBenchmark.Result result : results) {
+            Log.i(TAG, result.toString());
+            assertTrue(result.codec + " encoded no frames", result.framesEncoded > 0);
+            assertTrue(result.codec + " decoded no frames", result.framesDecoded > 0);
+        }
+    }
+
+    private static CodecBenchmark.Config parseConfig(Bundle arguments) {
+        CodecBenchmark.Config config = new CodecBenchmark.Config();
+
+        String codecs = arguments.getString("codecs");
+        if (codecs != null) {
+            config.codecs.addAll(Arrays.asList(codecs.split(",")));
+        }
+        String durationMs = arguments.getString("durationMs");
+        if (durationMs != null) {
+            config.durationMs = Long.parseLong(durationMs);
+        }
+        String warmupMs = arguments.getString("warmupMs");
+        if (warmupMs != null) {
+            config.warmupMs = Long.parseLong(warmupMs);
+        }
+        String frameRate = arguments.getString("frameRate");
+        if (frameRate != null) {
+            config.frameRate = Integer.parseInt(frameRate);
+        }
+        String inputFile = arguments.getString("inputFile");
+        if (inputFile != null) {
+            config.inputFile = inputFile;
+            config.inputWidth = Integer.parseInt(arguments.getString("inputWidth"));
+            config.inputHeight = Integer.parseInt(arguments.getString("inputHeight"));
+        }
+
+        return config;
+    }
+}
@@ -1,5 +1,7 @@
 package com.oney.WebRTCModule;
 
+import android.content.Context;
+
 import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 
@@ -7,6 +9,8 @@ import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 
+import org.webrtc.CapturerObserver;
+import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 
 public abstract class AbstractVideoCaptureController {
@@ -38,6 +42,15 @@ public abstract class AbstractVideoCaptureController {
         videoCapturer = createVideoCapturer();
     }
 
+    /**
+     * Initializes {@link #videoCapturer} to deliver its frames to the given observer, the one of the video
+     * source. Controllers which feed the source from more than one capturer interpose their own observer.
+     */
+    public void initializeCapturer(
+            SurfaceTextureHelper surfaceTextureHelper, Context context, CapturerObserver capturerObserver) {
+        videoCapturer.initialize(surfaceTextureHelper, context, capturerObserver);
+    }
+
     @Nullable
     public abstract String getDeviceId();
 
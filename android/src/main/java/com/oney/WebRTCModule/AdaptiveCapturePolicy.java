@@ -0,0 +1,372 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.Supplier;
+
+/**
+ * Lowers the capture resolution and frame rate of a camera track when the device heats up or the encoders
+ * sending it are limited by the CPU, and raises them back when that's over. The capture format moves along a
+ * ladder going from the constraints of the track down to the app's bounds, alternately lowering the frame rate
+ * and the resolution. The thermal status sets the lowest level allowed; a CPU limitation moves one level down
+ * after a few polls in a row, and back up after more polls without one. After each change of the capture format
+ * the CPU limitation is ignored for as many polls as a downgrade takes: the encoders are reconfigured with the
+ * camera, so their stats don't say anything about the new format yet.
+ *
+ * Must only be used in the executor.
+ */
+class AdaptiveCapturePolicy {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final Timer timer = new Timer("AdaptiveCapturePolicy", true);
+
+    static class Options {
+        int minWidth = 320;
+        int minHeight = 180;
+        int minFrameRate = 10;
+        long intervalMs = 2000;
+        int downgradePolls = 2;
+        int upgradePolls = 5;
+        boolean thermal = true;
+        boolean cpu = true;
+
+        static Options fromReadableMap(@Nullable ReadableMap map) {
+            Options options = new Options();
+            if (map == null) {
+                return options;
+            }
+
+            if (map.hasKey("minWidth")) {
+                options.minWidth = Math.max(2, map.getInt("minWidth"));
+            }
+            if (map.hasKey("minHeight")) {
+                options.minHeight = Math.max(2, map.getInt("minHeight"));
+            }
+            if (map.hasKey("minFrameRate")) {
+                options.minFrameRate = Math.max(1, map.getInt("minFrameRate"));
+            }
+            if (map.hasKey("intervalMs")) {
+                options.intervalMs = Math.max(500, (long) map.getDouble("intervalMs"));
+            }
+            if (map.hasKey("downgradePolls")) {
+                options.downgradePolls = Math.max(1, map.getInt("downgradePolls"));
+            }
+            if (map.hasKey("upgradePolls")) {
+                options.upgradePolls = Math.max(1, map.getInt("upgradePolls"));
+            }
+            if (map.hasKey("thermal")) {
+                options.thermal = map.getBoolean("thermal");
+            }
+            if (map.hasKey("cpu")) {
+                options.cpu = map.getBoolean("cpu");
+            }
+
+            return options;
+        }
+    }
+
+    static class Format {
+        final int width;
+        final int height;
+        final int frameRate;
+
+        Format(int width, int height, int frameRate) {
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Format)) {
+                return false;
+            }
+            Format other = (Format) o;
+            return width == other.width && height == other.height && frameRate == other.frameRate;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, frameRate);
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + "@" + frameRate;
+        }
+    }
+
+    private final CameraCaptureController controller;
+    private final String trackId;
+    private final Options options;
+    private final Supplier<List<PeerConnection>> peerConnections;
+    @Nullable
+    private final PowerManager powerManager;
+    @Nullable
+    private final Object thermalListener;
+
+    @Nullable
+    private TimerTask pollTask;
+
+    private List<Format> ladder = new ArrayList<>();
+    private int level;
+    private int cpuLevel;
+    private int thermalStatus;
+
+    // Whether the stats gathered since the last poll show a CPU limitation / any encoder at all.
+    private boolean cpuLimited;
+    private boolean sending;
+    private int cpuLimitedPolls;
+    private int unlimitedPolls;
+    // Polls left during which the CPU limitation is ignored, after a change of the capture format.
+    private int cooldownPolls;
+
+    AdaptiveCapturePolicy(Context context,
+            CameraCaptureController controller,
+            String trackId,
+            Options options,
+            Supplier<List<PeerConnection>> peerConnections) {
+        this.controller = controller;
+        this.trackId = trackId;
+        this.options = options;
+        this.peerConnections = peerConnections;
+
+        if (options.thermal && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            thermalListener = powerManager == null ? null : addThermalListener(powerManager);
+        } else {
+            powerManager = null;
+            thermalListener = null;
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private Object addThermalListener(PowerManager powerManager) {
+        thermalStatus = powerManager.getCurrentThermalStatus();
+
+        PowerManager.OnThermalStatusChangedListener listener = status -> {
+            Log.d(TAG, "Thermal status changed: " + status);
+            thermalStatus = status;
+            evaluate();
+        };
+        powerManager.addThermalStatusListener(ThreadUtils::runOnExecutor, listener);
+        return listener;
+    }
+
+    void start() {
+        ladder = buildLadder(new Format(controller.targetWidth, controller.targetHeight, controller.targetFps));
+        level = 0;
+
+        pollTask = new TimerTask() {
+            @Override
+            public void run() {
+                ThreadUtils.runOnExecutor(AdaptiveCapturePolicy.this::poll);
+            }
+        };
+        timer.schedule(pollTask, options.intervalMs, options.intervalMs);
+
+        // The device may already be hot.
+        evaluate();
+    }
+
+    void dispose() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+
+        if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            powerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) thermalListener);
+        }
+    }
+
+    /**
+     * Called when the format of the constraints changed, e.g. after applyConstraints: rebuilds the ladder from
+     * it and returns the format to capture in at the current level. The caller applies it, so the camera is
+     * only reconfigured once.
+     */
+    Format onTargetFormatChanged() {
+        ladder = buildLadder(new Format(controller.targetWidth, controller.targetHeight, controller.targetFps));
+        level = Math.min(level, ladder.size() - 1);
+        startCooldown();
+        return ladder.get(level);
+    }
+
+    /**
+     * Returns the format to capture in at the current level.
+     */
+    Format getFormat() {
+        return ladder.get(level);
+    }
+
+    private List<Format> buildLadder(Format target) {
+        List<Format> ladder = new ArrayList<>();
+        ladder.add(target);
+
+        Format format = target;
+        boolean lowerFrameRate = true;
+        while (true) {
+            Format next = lowerFrameRate ? lowerFrameRate(format) : lowerResolution(format);
+            if (next == null) {
+                // Try the other one.
+                next = lowerFrameRate ? lowerResolution(format) : lowerFrameRate(format);
+            }
+            if (next == null) {
+                break;
+            }
+            ladder.add(next);
+            format = next;
+            lowerFrameRate = !lowerFrameRate;
+        }
+
+        return ladder;
+    }
+
+    @Nullable
+    private Format lowerFrameRate(Format format) {
+        int frameRate = Math.max(options.minFrameRate, Math.round(format.frameRate * 2 / 3f));
+        return frameRate < format.frameRate ? new Format(format.width, format.height, frameRate) : null;
+    }
+
+    @Nullable
+    private Format lowerResolution(Format format) {
+        // Keep the aspect ratio: stop at whichever bound is reached first.
+        double scale = Math.max(0.75,
+                Math.max(options.minWidth / (double) format.width, options.minHeight / (double) format.height));
+        if (scale >= 1) {
+            return null;
+        }
+
+        int width = (int) Math.round(format.width * scale) & ~1;
+        int height = (int) Math.round(format.height * scale) & ~1;
+        return width < format.width && height < format.height ? new Format(width, height, format.frameRate)
+                                                               : null;
+    }
+
+    private void poll() {
+        if (pollTask == null) {
+            return;
+        }
+
+        if (options.cpu) {
+            if (cooldownPolls > 0) {
+                cooldownPolls--;
+            } else if (sending) {
+                if (cpuLimited) {
+                    unlimitedPolls = 0;
+                    if (++cpuLimitedPolls >= options.downgradePolls) {
+                        cpuLimitedPolls = 0;
+                        cpuLevel = Math.min(cpuLevel + 1, ladder.size() - 1);
+                    }
+                } else {
+                    cpuLimitedPolls = 0;
+                    if (++unlimitedPolls >= options.upgradePolls) {
+                        unlimitedPolls = 0;
+                        cpuLevel = Math.max(cpuLevel - 1, 0);
+                    }
+                }
+            }
+
+            cpuLimited = false;
+            sending = false;
+            for (PeerConnection peerConnection : peerConnections.get()) {
+                for (RtpSender sender : peerConnection.getSenders()) {
+                    MediaStreamTrack track = sender.track();
+                    if (track != null && trackId.equals(track.id())) {
+                        peerConnection.getStats(sender, report -> ThreadUtils.runOnExecutor(() -> onStats(report)));
+                    }
+                }
+            }
+        }
+
+        evaluate();
+    }
+
+    private void onStats(RTCStatsReport report) {
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if (!"outbound-rtp".equals(stats.getType())) {
+                continue;
+            }
+
+            Map<String, Object> members = stats.getMembers();
+            if (Boolean.FALSE.equals(members.get("active"))) {
+                continue;
+            }
+
+            sending = true;
+            if ("cpu".equals(members.get("qualityLimitationReason"))) {
+                cpuLimited = true;
+            }
+        }
+    }
+
+    private void evaluate() {
+        if (pollTask == null) {
+            return;
+        }
+
+        int thermalLevel = getThermalLevel();
+        int target = Math.min(Math.max(cpuLevel, thermalLevel), ladder.size() - 1);
+        if (target != level) {
+            apply(target, target < level ? "recovered" : thermalLevel >= cpuLevel ? "thermal" : "cpu");
+        }
+    }
+
+    private int getThermalLevel() {
+        if (thermalListener == null) {
+            return 0;
+        }
+
+        switch (thermalStatus) {
+            case PowerManager.THERMAL_STATUS_NONE:
+            case PowerManager.THERMAL_STATUS_LIGHT:
+                return 0;
+            case PowerManager.THERMAL_STATUS_MODERATE:
+                return 1;
+            case PowerManager.THERMAL_STATUS_SEVERE:
+                return 2;
+            default:
+                return ladder.size() - 1;
+        }
+    }
+
+    private void apply(int level, @Nullable String reason) {
+        if (level == this.level) {
+            return;
+        }
+
+        Format format = ladder.get(level);
+        Log.d(TAG,
+                "Adapting capture of track " + trackId + " to " + format + " (level " + level
+                        + (reason == null ? "" : ", " + reason) + ")");
+        this.level = level;
+        controller.adaptCaptureFormat(format.width, format.height, format.frameRate);
+        startCooldown();
+    }
+
+    private void startCooldown() {
+        cpuLimitedPolls = 0;
+        unlimitedPolls = 0;
+        cooldownPolls = options.downgradePolls;
+    }
+}
@@ -1,13 +1,18 @@
 package com.oney.WebRTCModule;
 
 import android.content.Context;
+import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.util.Pair;
 
 import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 
@@ -17,12 +22,16 @@ import org.webrtc.Camera2Capturer;
 import org.webrtc.Camera2Helper;
 import org.webrtc.CameraEnumerator;
 import org.webrtc.CameraVideoCapturer;
+import org.webrtc.CapturerObserver;
 import org.webrtc.Size;
+import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
+import org.webrtc.VideoFrame;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 public class CameraCaptureController extends AbstractVideoCaptureController {
     /**
@@ -30,6 +39,20 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
      */
     private static final String TAG = CameraCaptureController.class.getSimpleName();
 
+    /**
+     * The format the standby camera captures at while it's not switched to: enough to keep its session open,
+     * as cheap as possible.
+     */
+    private static final int STANDBY_WIDTH = 320;
+    private static final int STANDBY_HEIGHT = 240;
+    private static final int STANDBY_FPS = 15;
+
+    /**
+     * How long the standby camera has to deliver a frame in the capture format before the switch falls back
+     * to {@link CameraVideoCapturer#switchCamera}.
+     */
+    private static final long STANDBY_SWITCH_TIMEOUT_MS = 3000;
+
     private boolean isFrontFacing;
 
     /**
@@ -45,6 +68,94 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
     private final String constraintFacingMode;
     private ReadableMap constraints;
 
+    /**
+     * A camera kept open next to the one captured from, so switching to it doesn't leave a gap in the video.
+     */
+    private static class Standby {
+        final VideoCapturer capturer;
+        final int cameraIndex;
+        final String cameraName;
+        final boolean isFrontFacing;
+        // Called once the camera started, or failed to. Null once started. Guarded by switchLock.
+        @Nullable
+        Consumer<Exception> startCallback;
+
+        Standby(VideoCapturer capturer, int cameraIndex, String cameraName, boolean isFrontFacing) {
+            this.capturer = capturer;
+            this.cameraIndex = cameraIndex;
+            this.cameraName = cameraName;
+            this.isFrontFacing = isFrontFacing;
+        }
+    }
+
+    private static class PendingSwitch {
+        final Standby standby;
+        final AdaptiveCapturePolicy.Format format;
+        final long startNs;
+        final Consumer<Exception> callback;
+        // Whether the standby camera was restarted in the capture format, its next frame completes the switch.
+        boolean started;
+
+        PendingSwitch(
+                Standby standby, AdaptiveCapturePolicy.Format format, long startNs, Consumer<Exception> callback) {
+            this.standby = standby;
+            this.format = format;
+            this.startNs = startNs;
+            this.callback = callback;
+        }
+    }
+
+    @Nullable
+    private volatile Standby standby;
+
+    /**
+     * The observer of the video source. The capturers deliver their frames to it through a
+     * {@link GatedCapturerObserver}, so only the frames of the camera captured from reach the source.
+     */
+    private CapturerObserver sourceObserver;
+
+    /**
+     * The {@link SurfaceTextureHelper} {@link #videoCapturer} is initialized with, and the one the standby
+     * capturer is initialized with (or which is free). They trade places on every switch to the standby camera.
+     */
+    private SurfaceTextureHelper surfaceTextureHelper;
+    @Nullable
+    private SurfaceTextureHelper spareSurfaceTextureHelper;
+    /**
+     * The {@link SurfaceTextureHelper} created by this controller, the other one belongs to the track.
+     */
+    @Nullable
+    private SurfaceTextureHelper ownSurfaceTextureHelper;
+    /**
+     * Called in the executor when the standby camera replaced the one captured from, so what holds on to
+     * {@link #getSurfaceTextureHelper()} (e.g. the video effects) can follow.
+     */
+    @Nullable
+    private Runnable capturerSwapListener;
+
+    private final Object switchLock = new Object();
+    // The capturer whose frames reach the source. Guarded by switchLock.
+    private VideoCapturer activeCapturer;
+    @Nullable
+    private PendingSwitch pendingSwitch;
+    // When the camera switch waiting for its first frame was requested, 0 if none. Guarded by switchLock.
+    private long switchStartNs;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Nullable
+    private AdaptiveCapturePolicy adaptivePolicy;
+    // Where the formats set by the adaptive capture policy are reported.
+    @Nullable
+    private WebRTCModule webRTCModule;
+    @Nullable
+    private String trackId;
+
+    private int switchCount;
+    private int standbySwitchCount;
+    private long lastSwitchLatencyMs = -1;
+    private long totalSwitchLatencyMs;
+
     /**
      * The {@link CameraEventsHandler} used with
      * {@link CameraEnumerator#createCapturer}.
@@ -53,6 +164,11 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
         @Override
         public void onCameraOpening(String cameraName) {
             super.onCameraOpening(cameraName);
+            Standby standby = CameraCaptureController.this.standby;
+            if (standby != null && standby.cameraName.equals(cameraName)) {
+                // Not the camera captured from.
+                return;
+            }
             int cameraIndex = findCameraIndex(cameraName);
             updateActualSize(cameraIndex, cameraName, videoCapturer);
             CameraCaptureController.this.currentDeviceId = cameraIndex == -1 ? null : String.valueOf(cameraIndex);
@@ -169,12 +285,17 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
             Log.d(TAG, "Forcing camera switch, couldn't parse current device id: " + currentDeviceId);
         }
 
-        CameraVideoCapturer capturer = (CameraVideoCapturer) videoCapturer;
         Runnable changeFormatIfNeededAndFinish = () -> {
             saveConstraints.run();
             if (targetWidth != oldTargetWidth || targetHeight != oldTargetHeight || targetFps != oldTargetFps) {
-                updateActualSize(finalCameraIndex, finalCameraName, videoCapturer);
-                capturer.changeCaptureFormat(targetWidth, targetHeight, targetFps);
+                // Straight to the adapted format, if any, instead of through the one of the constraints.
+                AdaptiveCapturePolicy.Format format = adaptivePolicy != null
+                        ? adaptivePolicy.onTargetFormatChanged()
+                        : new AdaptiveCapturePolicy.Format(targetWidth, targetHeight, targetFps);
+                updateActualSize(finalCameraIndex, finalCameraName, videoCapturer, format.width, format.height);
+                ((CameraVideoCapturer) videoCapturer)
+                        .changeCaptureFormat(format.width, format.height, format.frameRate);
+                actualFps = format.frameRate;
             }
             if (onFinishedCallback != null) {
                 onFinishedCallback.accept(null);
@@ -182,28 +303,562 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
         };
 
         if (shouldSwitchCamera) {
-            capturer.switchCamera(new CameraVideoCapturer.CameraSwitchHandler() {
-                @Override
-                public void onCameraSwitchDone(boolean isFrontCamera) {
-                    CameraCaptureController.this.isFrontFacing = isFrontCamera;
-                    changeFormatIfNeededAndFinish.run();
-                }
-
-                @Override
-                public void onCameraSwitchError(String s) {
-                    Exception e = new Exception("Error switching camera: " + s);
-                    Log.e(TAG, "OnCameraSwitchError", e);
+            switchCamera(cameraName, e -> {
+                if (e != null) {
                     if (onFinishedCallback != null) {
                         onFinishedCallback.accept(e);
                     }
+                    return;
                 }
-            }, cameraName);
+                changeFormatIfNeededAndFinish.run();
+            });
         } else {
             // No camera switch needed, just change format if needed.
             changeFormatIfNeededAndFinish.run();
         }
     }
 
+    /**
+     * Switches to the given camera: without a gap in the video if it's the standby camera, by reopening the
+     * capture session otherwise.
+     */
+    private void switchCamera(String cameraName, Consumer<Exception> callback) {
+        Standby standby = this.standby;
+        if (standby != null && standby.cameraName.equals(cameraName)) {
+            switchToStandby(callback);
+            return;
+        }
+
+        long startNs = System.nanoTime();
+        ((CameraVideoCapturer) videoCapturer).switchCamera(new CameraVideoCapturer.CameraSwitchHandler() {
+            @Override
+            public void onCameraSwitchDone(boolean isFrontCamera) {
+                CameraCaptureController.this.isFrontFacing = isFrontCamera;
+                synchronized (switchLock) {
+                    // The next frame is from the new camera.
+                    switchStartNs = startNs;
+                }
+                callback.accept(null);
+            }
+
+            @Override
+            public void onCameraSwitchError(String s) {
+                Exception e = new Exception("Error switching camera: " + s);
+                Log.e(TAG, "OnCameraSwitchError", e);
+                callback.accept(e);
+            }
+        }, cameraName);
+    }
+
+    /**
+     * Returns the {@link SurfaceTextureHelper} of the camera captured from, which changes on every switch to the
+     * standby camera.
+     */
+    public SurfaceTextureHelper getSurfaceTextureHelper() {
+        return surfaceTextureHelper;
+    }
+
+    public void setCapturerSwapListener(@Nullable Runnable capturerSwapListener) {
+        this.capturerSwapListener = capturerSwapListener;
+    }
+
+    /**
+     * Keeps the given camera open next to the one captured from, at a low resolution and frame rate, so that
+     * switching to it through {@link #applyConstraints} or {@link #switchToStandby} is immediate. If no device ID
+     * is given, the first camera facing the other way is used. Only available with the Camera2 API on devices
+     * which report the two cameras as able to capture concurrently: others fail to open the second camera, or
+     * close the first one when they do. The callback is called once the standby camera started.
+     */
+    public void setStandby(boolean enabled, @Nullable String deviceId, Consumer<Exception> callback) {
+        if (videoCapturer == null || sourceObserver == null) {
+            callback.accept(new Exception("The camera is not capturing"));
+            return;
+        }
+
+        disposeStandby();
+
+        if (!enabled) {
+            callback.accept(null);
+            return;
+        }
+
+        String[] deviceNames = cameraEnumerator.getDeviceNames();
+        int cameraIndex = -1;
+        if (deviceId != null) {
+            try {
+                cameraIndex = Integer.parseInt(deviceId);
+            } catch (NumberFormatException e) {
+                Log.d(TAG, "failed to find device with id: " + deviceId);
+            }
+        } else {
+            for (int i = 0; i < deviceNames.length; i++) {
+                if (!String.valueOf(i).equals(currentDeviceId) && isFrontFacing(deviceNames[i]) != isFrontFacing) {
+                    cameraIndex = i;
+                    break;
+                }
+            }
+        }
+
+        if (cameraIndex < 0 || cameraIndex >= deviceNames.length
+                || String.valueOf(cameraIndex).equals(currentDeviceId)) {
+            callback.accept(new Exception("OverconstrainedError: no standby camera for deviceId: " + deviceId));
+            return;
+        }
+
+        String cameraName = deviceNames[cameraIndex];
+        if (!supportsConcurrentCapture(cameraName)) {
+            callback.accept(new Exception("NotSupportedError: the device can't capture from camera " + cameraName
+                    + " next to the current one"));
+            return;
+        }
+
+        VideoCapturer capturer = cameraEnumerator.createCapturer(cameraName, cameraEventsHandler);
+        if (capturer == null) {
+            callback.accept(new Exception("Failed to create standby camera " + cameraName));
+            return;
+        }
+
+        if (spareSurfaceTextureHelper == null) {
+            ownSurfaceTextureHelper =
+                    SurfaceTextureHelper.create("StandbyCaptureThread", EglUtils.getRootEglBaseContext());
+            if (ownSurfaceTextureHelper == null) {
+                capturer.dispose();
+                callback.accept(new Exception("Error creating SurfaceTextureHelper"));
+                return;
+            }
+            spareSurfaceTextureHelper = ownSurfaceTextureHelper;
+        }
+
+        Log.d(TAG, "Keeping standby camera " + cameraName);
+        capturer.initialize(spareSurfaceTextureHelper, context, new GatedCapturerObserver(capturer));
+        Standby standby = new Standby(capturer, cameraIndex, cameraName, isFrontFacing(cameraName));
+        standby.startCallback = callback;
+        this.standby = standby;
+        capturer.startCapture(STANDBY_WIDTH, STANDBY_HEIGHT, STANDBY_FPS);
+    }
+
+    /**
+     * Whether the camera captured from and the given one can capture at the same time.
+     */
+    private boolean supportsConcurrentCapture(String cameraName) {
+        if (!(videoCapturer instanceof Camera2Capturer) || Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return false;
+        }
+
+        String currentName;
+        try {
+            currentName = cameraEnumerator.getDeviceNames()[Integer.parseInt(currentDeviceId)];
+        } catch (Exception e) {
+            Log.d(TAG, "Couldn't find the current camera: " + currentDeviceId);
+            return false;
+        }
+
+        CameraManager cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            for (Set<String> cameraIds : cameraManager.getConcurrentCameraIds()) {
+                if (cameraIds.contains(currentName) && cameraIds.contains(cameraName)) {
+                    return true;
+                }
+            }
+        } catch (CameraAccessException e) {
+            Log.d(TAG, "Failed to get the concurrent cameras", e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Called once the standby camera started, or failed to.
+     */
+    private void onStandbyStarted(Standby standby, boolean success, @Nullable Consumer<Exception> callback) {
+        if (success) {
+            if (callback != null) {
+                callback.accept(null);
+            }
+            return;
+        }
+
+        Log.w(TAG, "Standby camera " + standby.cameraName + " failed to start");
+        if (this.standby == standby) {
+            disposeStandby();
+        }
+        if (callback != null) {
+            callback.accept(new Exception("Failed to start standby camera " + standby.cameraName));
+        }
+    }
+
+    /**
+     * Switches to the standby camera: it's restarted in the capture format while the current camera keeps
+     * capturing, and replaces it at its first frame in it. The current camera becomes the standby one.
+     */
+    public void switchToStandby(Consumer<Exception> callback) {
+        Standby standby = this.standby;
+        if (standby == null) {
+            callback.accept(new Exception("No standby camera"));
+            return;
+        }
+
+        AdaptiveCapturePolicy.Format format = getCaptureFormat();
+        PendingSwitch pendingSwitch = new PendingSwitch(standby, format, System.nanoTime(), callback);
+        synchronized (switchLock) {
+            if (standby.startCallback != null) {
+                callback.accept(new Exception("The standby camera is still starting"));
+                return;
+            }
+            if (this.pendingSwitch != null) {
+                callback.accept(new Exception("A camera switch is already in progress"));
+                return;
+            }
+            this.pendingSwitch = pendingSwitch;
+        }
+
+        ((CameraVideoCapturer) standby.capturer).changeCaptureFormat(format.width, format.height, format.frameRate);
+        handler.postDelayed(() -> ThreadUtils.runOnExecutor(() -> {
+            synchronized (switchLock) {
+                if (this.pendingSwitch != pendingSwitch) {
+                    return;
+                }
+            }
+            abandonSwitch(pendingSwitch, "timed out");
+        }), STANDBY_SWITCH_TIMEOUT_MS);
+    }
+
+    private void completeSwitch(PendingSwitch pendingSwitch, long endNs) {
+        Standby next = pendingSwitch.standby;
+        if (videoCapturer == null || standby != next) {
+            // Disposed in the meantime.
+            pendingSwitch.callback.accept(new Exception("The camera was stopped"));
+            return;
+        }
+
+        String previousName = null;
+        int previousIndex = -1;
+        try {
+            previousIndex = Integer.parseInt(currentDeviceId);
+            previousName = cameraEnumerator.getDeviceNames()[previousIndex];
+        } catch (Exception e) {
+            Log.d(TAG, "Couldn't find the previous camera: " + currentDeviceId);
+        }
+
+        VideoCapturer previousCapturer = videoCapturer;
+        SurfaceTextureHelper previousSurfaceTextureHelper = surfaceTextureHelper;
+
+        videoCapturer = next.capturer;
+        surfaceTextureHelper = spareSurfaceTextureHelper;
+        spareSurfaceTextureHelper = previousSurfaceTextureHelper;
+        isFrontFacing = next.isFrontFacing;
+        currentDeviceId = String.valueOf(next.cameraIndex);
+
+        AdaptiveCapturePolicy.Format format = getCaptureFormat();
+        if (!format.equals(pendingSwitch.format)) {
+            // Adapted while switching.
+            ((CameraVideoCapturer) videoCapturer).changeCaptureFormat(format.width, format.height, format.frameRate);
+        }
+        updateActualSize(next.cameraIndex, next.cameraName, videoCapturer, format.width, format.height);
+        actualFps = format.frameRate;
+
+        if (previousName != null) {
+            // The previous camera becomes the standby one.
+            standby = new Standby(previousCapturer, previousIndex, previousName, isFrontFacing(previousName));
+            ((CameraVideoCapturer) previousCapturer).changeCaptureFormat(STANDBY_WIDTH, STANDBY_HEIGHT, STANDBY_FPS);
+        } else {
+            standby = null;
+            stopAndDispose(previousCapturer);
+        }
+
+        if (capturerSwapListener != null) {
+            capturerSwapListener.run();
+        }
+
+        recordSwitch(endNs - pendingSwitch.startNs, true);
+        pendingSwitch.callback.accept(null);
+    }
+
+    /**
+     * Gives up on a switch to the standby camera, which failed to deliver frames, and switches the regular way.
+     */
+    private void abandonSwitch(PendingSwitch pendingSwitch, String reason) {
+        synchronized (switchLock) {
+            if (this.pendingSwitch == pendingSwitch) {
+                this.pendingSwitch = null;
+            }
+        }
+
+        Log.w(TAG, "Switch to standby camera " + pendingSwitch.standby.cameraName + " " + reason);
+        if (standby != pendingSwitch.standby || videoCapturer == null) {
+            // Disposed in the meantime.
+            pendingSwitch.callback.accept(new Exception("The camera was stopped"));
+            return;
+        }
+        disposeStandby();
+        switchCamera(pendingSwitch.standby.cameraName, pendingSwitch.callback);
+    }
+
+    private void disposeStandby() {
+        Standby standby = this.standby;
+        if (standby == null) {
+            return;
+        }
+
+        this.standby = null;
+        Consumer<Exception> startCallback;
+        synchronized (switchLock) {
+            startCallback = standby.startCallback;
+            standby.startCallback = null;
+        }
+        stopAndDispose(standby.capturer);
+        if (startCallback != null) {
+            startCallback.accept(new Exception("The standby camera was stopped"));
+        }
+    }
+
+    private static void stopAndDispose(VideoCapturer capturer) {
+        try {
+            capturer.stopCapture();
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Interrupted stopping standby camera");
+        }
+        capturer.dispose();
+    }
+
+    private void recordSwitch(long latencyNs, boolean standby) {
+        lastSwitchLatencyMs = latencyNs / 1_000_000;
+        totalSwitchLatencyMs += lastSwitchLatencyMs;
+        switchCount++;
+        if (standby) {
+            standbySwitchCount++;
+        }
+        Log.d(TAG, "Camera switch took " + lastSwitchLatencyMs + "ms" + (standby ? " (standby)" : ""));
+    }
+
+    /**
+     * Returns the time camera switches took, from the request to the first frame of the new camera.
+     */
+    public WritableMap getSwitchStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("switches", switchCount);
+        stats.putInt("standbySwitches", standbySwitchCount);
+        if (switchCount > 0) {
+            stats.putDouble("lastLatencyMs", lastSwitchLatencyMs);
+            stats.putDouble("averageLatencyMs", totalSwitchLatencyMs / (double) switchCount);
+        }
+        Standby standby = this.standby;
+        stats.putString("standbyDeviceId", standby == null ? null : String.valueOf(standby.cameraIndex));
+        return stats;
+    }
+
+    /**
+     * Starts or stops (with null options) adapting the capture format to the thermal status of the device and
+     * to CPU limitations of the encoders sending the track. The new settings are sent in a
+     * {@code mediaStreamTrackSettingsChanged} event whenever the format is adapted.
+     */
+    public void setAdaptiveCapture(
+            @Nullable AdaptiveCapturePolicy.Options options, String trackId, WebRTCModule webRTCModule) {
+        this.trackId = trackId;
+        this.webRTCModule = webRTCModule;
+
+        if (adaptivePolicy != null) {
+            AdaptiveCapturePolicy.Format format = adaptivePolicy.getFormat();
+            adaptivePolicy.dispose();
+            adaptivePolicy = null;
+            AdaptiveCapturePolicy.Format target = getCaptureFormat();
+            if (!format.equals(target)) {
+                // Back to the format of the constraints.
+                adaptCaptureFormat(target.width, target.height, target.frameRate);
+            }
+        }
+
+        if (options != null && videoCapturer != null) {
+            adaptivePolicy =
+                    new AdaptiveCapturePolicy(context, this, trackId, options, webRTCModule::getPeerConnections);
+            adaptivePolicy.start();
+        }
+    }
+
+    /**
+     * Captures in the given format, overriding the one of the constraints until they are applied again.
+     */
+    void adaptCaptureFormat(int width, int height, int fps) {
+        if (!(videoCapturer instanceof CameraVideoCapturer)) {
+            return;
+        }
+
+        ((CameraVideoCapturer) videoCapturer).changeCaptureFormat(width, height, fps);
+        actualFps = fps;
+        try {
+            int cameraIndex = Integer.parseInt(currentDeviceId);
+            updateActualSize(cameraIndex, cameraEnumerator.getDeviceNames()[cameraIndex], videoCapturer, width, height);
+        } catch (Exception e) {
+            Log.d(TAG, "Couldn't find the current camera: " + currentDeviceId);
+        }
+
+        if (webRTCModule != null) {
+            WritableMap params = Arguments.createMap();
+            params.putString("trackId", trackId);
+            params.putMap("settings", getSettings());
+            webRTCModule.sendEvent("mediaStreamTrackSettingsChanged", params);
+        }
+    }
+
+    /**
+     * Returns the format to capture in: the one set by the adaptive capture policy, if any, otherwise the one of
+     * the constraints.
+     */
+    private AdaptiveCapturePolicy.Format getCaptureFormat() {
+        return adaptivePolicy != null ? adaptivePolicy.getFormat()
+                                      : new AdaptiveCapturePolicy.Format(targetWidth, targetHeight, targetFps);
+    }
+
+    private boolean isFrontFacing(String cameraName) {
+        try {
+            return cameraEnumerator.isFrontFacing(cameraName);
+        } catch (Exception e) {
+            // This can throw an exception when using the Camera 1 API.
+            return false;
+        }
+    }
+
+    @Override
+    public void initializeCapturer(
+            SurfaceTextureHelper surfaceTextureHelper, Context context, CapturerObserver capturerObserver) {
+        this.sourceObserver = capturerObserver;
+        this.surfaceTextureHelper = surfaceTextureHelper;
+        synchronized (switchLock) {
+            activeCapturer = videoCapturer;
+        }
+        videoCapturer.initialize(surfaceTextureHelper, context, new GatedCapturerObserver(videoCapturer));
+    }
+
+    @Override
+    public void startCapture() {
+        super.startCapture();
+
+        Standby standby = this.standby;
+        if (standby != null) {
+            standby.capturer.startCapture(STANDBY_WIDTH, STANDBY_HEIGHT, STANDBY_FPS);
+        }
+    }
+
+    @Override
+    public boolean stopCapture() {
+        Standby standby = this.standby;
+        if (standby != null) {
+            try {
+                standby.capturer.stopCapture();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        return super.stopCapture();
+    }
+
+    @Override
+    public void dispose() {
+        if (adaptivePolicy != null) {
+            adaptivePolicy.dispose();
+            adaptivePolicy = null;
+        }
+        disposeStandby();
+        super.dispose();
+
+        if (ownSurfaceTextureHelper != null) {
+            ownSurfaceTextureHelper.dispose();
+            ownSurfaceTextureHelper = null;
+        }
+    }
+
+    /**
+     * Forwards the frames of a capturer to the video source only while it's the one captured from. The standby
+     * capturer takes over at its first frame once restarted in the capture format, so the source never misses
+     * a frame.
+     */
+    private class GatedCapturerObserver implements CapturerObserver {
+        private final VideoCapturer capturer;
+
+        GatedCapturerObserver(VideoCapturer capturer) {
+            this.capturer = capturer;
+        }
+
+        @Override
+        public void onCapturerStarted(boolean success) {
+            PendingSwitch failedSwitch = null;
+            Standby startedStandby = null;
+            Consumer<Exception> startCallback = null;
+            synchronized (switchLock) {
+                if (capturer == activeCapturer) {
+                    sourceObserver.onCapturerStarted(success);
+                    return;
+                }
+                if (pendingSwitch != null && pendingSwitch.standby.capturer == capturer) {
+                    if (success) {
+                        pendingSwitch.started = true;
+                    } else {
+                        failedSwitch = pendingSwitch;
+                    }
+                } else {
+                    Standby standby = CameraCaptureController.this.standby;
+                    if (standby != null && standby.capturer == capturer) {
+                        startedStandby = standby;
+                        startCallback = standby.startCallback;
+                        standby.startCallback = null;
+                    }
+                }
+            }
+
+            if (failedSwitch != null) {
+                PendingSwitch s = failedSwitch;
+                ThreadUtils.runOnExecutor(() -> abandonSwitch(s, "failed to start"));
+            } else if (startedStandby != null && (startCallback != null || !success)) {
+                Standby s = startedStandby;
+                Consumer<Exception> c = startCallback;
+                ThreadUtils.runOnExecutor(() -> onStandbyStarted(s, success, c));
+            }
+        }
+
+        @Override
+        public void onCapturerStopped() {
+            synchronized (switchLock) {
+                if (capturer != activeCapturer) {
+                    return;
+                }
+            }
+            sourceObserver.onCapturerStopped();
+        }
+
+        @Override
+        public void onFrameCaptured(VideoFrame frame) {
+            PendingSwitch completedSwitch = null;
+            long switchLatencyNs = -1;
+            long nowNs = System.nanoTime();
+            synchronized (switchLock) {
+                if (capturer != activeCapturer) {
+                    if (pendingSwitch == null || pendingSwitch.standby.capturer != capturer
+                            || !pendingSwitch.started) {
+                        return;
+                    }
+                    // Swap at this frame boundary.
+                    activeCapturer = capturer;
+                    completedSwitch = pendingSwitch;
+                    pendingSwitch = null;
+                } else if (switchStartNs != 0) {
+                    switchLatencyNs = nowNs - switchStartNs;
+                    switchStartNs = 0;
+                }
+            }
+
+            sourceObserver.onFrameCaptured(frame);
+
+            if (completedSwitch != null) {
+                PendingSwitch s = completedSwitch;
+                ThreadUtils.runOnExecutor(() -> completeSwitch(s, nowNs));
+            } else if (switchLatencyNs >= 0) {
+                long latencyNs = switchLatencyNs;
+                ThreadUtils.runOnExecutor(() -> recordSwitch(latencyNs, false));
+            }
+        }
+    }
+
     @Override
     protected VideoCapturer createVideoCapturer() {
         CreateCapturerResult result = createVideoCapturer(constraintDeviceId, constraintFacingMode);
@@ -217,13 +872,18 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
     }
 
     private void updateActualSize(int cameraIndex, String cameraName, VideoCapturer videoCapturer) {
+        updateActualSize(cameraIndex, cameraName, videoCapturer, targetWidth, targetHeight);
+    }
+
+    private void updateActualSize(
+            int cameraIndex, String cameraName, VideoCapturer videoCapturer, int width, int height) {
         // Find actual capture format.
         Size actualSize = null;
         if (videoCapturer instanceof Camera1Capturer) {
-            actualSize = Camera1Helper.findClosestCaptureFormat(cameraIndex, targetWidth, targetHeight);
+            actualSize = Camera1Helper.findClosestCaptureFormat(cameraIndex, width, height);
         } else if (videoCapturer instanceof Camera2Capturer) {
             CameraManager cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
-            actualSize = Camera2Helper.findClosestCaptureFormat(cameraManager, cameraName, targetWidth, targetHeight);
+            actualSize = Camera2Helper.findClosestCaptureFormat(cameraManager, cameraName, width, height);
         }
 
         if (actualSize != null) {
@@ -0,0 +1,214 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.PeerConnection;
+import org.webrtc.RtcCertificatePem;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps DTLS certificates generated ahead of time so new PeerConnections can reuse them instead of
+ * generating a fresh one during setup. There is at most one certificate per key type. Certificates can
+ * optionally be persisted to the app's private storage, together with their expiry.
+ *
+ * Persisted certificates, private key included, are stored unencrypted in the no-backup files directory, so
+ * they are left out of Auto Backup and device transfers. They are not wrapped with the Android Keystore: WebRTC
+ * needs the private key in PEM form, so it would be unwrapped into memory on every use anyway.
+ *
+ * Access is synchronized: certificates are generated in the executor, but looked up while parsing
+ * configurations on the JS thread.
+ */
+class CertificateCache {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final String FILE_NAME = "WebRTCModuleCertificates.json";
+    // Where certificates were persisted before, which is included in backups.
+    private static final String LEGACY_PREFS_NAME = "WebRTCModuleCertificates";
+
+    /**
+     * Certificates which expire within this interval, or within half their lifetime if that's shorter, are not
+     * handed out anymore.
+     */
+    static final long MIN_REMAINING_VALIDITY_MS = 24 * 60 * 60 * 1000L;
+
+    static final long DEFAULT_EXPIRES_MS = 30 * 24 * 60 * 60 * 1000L;
+
+    private static class Entry {
+        final RtcCertificatePem certificate;
+        final long expiresAt;
+        // The expires the certificate was generated with, in ms.
+        final long lifetimeMs;
+        boolean persisted;
+
+        Entry(RtcCertificatePem certificate, long expiresAt, long lifetimeMs) {
+            this.certificate = certificate;
+            this.expiresAt = expiresAt;
+            this.lifetimeMs = lifetimeMs;
+        }
+
+        boolean isValid() {
+            long minRemainingMs = Math.min(MIN_REMAINING_VALIDITY_MS, lifetimeMs / 2);
+            return expiresAt - System.currentTimeMillis() > minRemainingMs;
+        }
+    }
+
+    private final Context context;
+    private final Map<PeerConnection.KeyType, Entry> entries = new EnumMap<>(PeerConnection.KeyType.class);
+    private boolean loaded = false;
+
+    CertificateCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Returns a cached certificate of the given type, generating (and optionally persisting) a new one if
+     * there is none, it's about to expire or it was generated with another lifetime.
+     *
+     * @return the expiry of the returned certificate, in ms since the epoch.
+     */
+    synchronized long getOrGenerate(PeerConnection.KeyType keyType, long expiresMs, boolean persist) {
+        load();
+
+        Entry entry = entries.get(keyType);
+        if (entry != null && entry.lifetimeMs == expiresMs && entry.isValid()) {
+            if (persist && !entry.persisted) {
+                entry.persisted = true;
+                store();
+            }
+            return entry.expiresAt;
+        }
+
+        long start = System.currentTimeMillis();
+        RtcCertificatePem certificate = RtcCertificatePem.generateCertificate(keyType, expiresMs / 1000);
+        entry = new Entry(certificate, start + expiresMs, expiresMs);
+        entry.persisted = persist;
+        Entry previous = entries.put(keyType, entry);
+
+        Log.d(TAG, "CertificateCache: generated " + keyType + " certificate in "
+                        + (System.currentTimeMillis() - start) + "ms");
+
+        if (persist || (previous != null && previous.persisted)) {
+            store();
+        }
+
+        return entry.expiresAt;
+    }
+
+    /**
+     * Returns the cached certificate of the given type, if it's still valid.
+     */
+    @Nullable
+    synchronized RtcCertificatePem get(PeerConnection.KeyType keyType) {
+        load();
+
+        Entry entry = entries.get(keyType);
+
+        return entry != null && entry.isValid() ? entry.certificate : null;
+    }
+
+    /**
+     * Drops all cached certificates, including the persisted ones.
+     */
+    synchronized void clear() {
+        entries.clear();
+        loaded = true;
+        file().delete();
+    }
+
+    private AtomicFile file() {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+
+        // Don't leave private keys persisted by previous versions where backups can reach them.
+        context.deleteSharedPreferences(LEGACY_PREFS_NAME);
+
+        JSONObject json;
+        try {
+            json = new JSONObject(new String(file().readFully(), StandardCharsets.UTF_8));
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "CertificateCache: failed to load the persisted certificates", e);
+            return;
+        }
+
+        boolean dropped = false;
+        for (PeerConnection.KeyType keyType : PeerConnection.KeyType.values()) {
+            JSONObject item = json.optJSONObject(keyType.name());
+            if (item == null) {
+                continue;
+            }
+
+            try {
+                Entry entry = new Entry(
+                        new RtcCertificatePem(item.getString("privateKey"), item.getString("certificate")),
+                        item.getLong("expiresAt"),
+                        item.getLong("lifetimeMs"));
+                entry.persisted = true;
+                if (entry.isValid()) {
+                    entries.put(keyType, entry);
+                    continue;
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "CertificateCache: invalid persisted " + keyType + " certificate", e);
+            }
+            dropped = true;
+        }
+
+        if (dropped) {
+            store();
+        }
+    }
+
+    /**
+     * Writes the persisted entries.
+     */
+    private void store() {
+        AtomicFile file = file();
+        FileOutputStream out = null;
+        try {
+            JSONObject json = new JSONObject();
+            for (Map.Entry<PeerConnection.KeyType, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (!entry.persisted) {
+                    continue;
+                }
+                JSONObject item = new JSONObject();
+                item.put("privateKey", entry.certificate.privateKey);
+                item.put("certificate", entry.certificate.certificate);
+                item.put("expiresAt", entry.expiresAt);
+                item.put("lifetimeMs", entry.lifetimeMs);
+                json.put(e.getKey().name(), item);
+            }
+
+            out = file.startWrite();
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(out);
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "CertificateCache: failed to persist the certificates", e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.hardware.camera2.CameraManager;
+import android.media.AudioDeviceCallback;
+import android.media.AudioDeviceInfo;
+import android.media.AudioManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.webrtc.CameraEnumerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The media devices reported by {@code enumerateDevices}. Cameras are enumerated once and then only again when
+ * the camera service reports a change in their availability, so enumerating doesn't query (or, with the Camera1
+ * API, possibly open) every camera each time. A {@code mediaDevicesOnDeviceChange} event is sent when the
+ * cameras or the audio inputs change.
+ *
+ * Must only be used in the executor, except for {@link #start()} and {@link #stop()}.
+ */
+class DeviceRegistry {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static class VideoDevice {
+        final String name;
+        final boolean isFrontFacing;
+
+        VideoDevice(String name, boolean isFrontFacing) {
+            this.name = name;
+            this.isFrontFacing = isFrontFacing;
+        }
+    }
+
+    private final WebRTCModule webRTCModule;
+    private final Context context;
+    private final Supplier<CameraEnumerator> cameraEnumerator;
+
+    /**
+     * The camera names, in the order of the enumerator: their index is the device ID. Null until enumerated.
+     */
+    @Nullable
+    private String[] cameraNames;
+    private final List<VideoDevice> videoDevices = new ArrayList<>();
+    private final Set<Integer> audioInputIds = new HashSet<>();
+
+    private final CameraManager.AvailabilityCallback availabilityCallback = new CameraManager.AvailabilityCallback() {
+        @Override
+        public void onCameraAvailable(@NonNull String cameraId) {
+            ThreadUtils.runOnExecutor(DeviceRegistry.this::refreshCameras);
+        }
+
+        @Override
+        public void onCameraUnavailable(@NonNull String cameraId) {
+            ThreadUtils.runOnExecutor(DeviceRegistry.this::refreshCameras);
+        }
+    };
+
+    private final AudioDeviceCallback audioDeviceCallback = new AudioDeviceCallback() {
+        @Override
+        public void onAudioDevicesAdded(AudioDeviceInfo[] addedDevices) {
+            ThreadUtils.runOnExecutor(DeviceRegistry.this::refreshAudioInputs);
+        }
+
+        @Override
+        public void onAudioDevicesRemoved(AudioDeviceInfo[] removedDevices) {
+            ThreadUtils.runOnExecutor(DeviceRegistry.this::refreshAudioInputs);
+        }
+    };
+
+    DeviceRegistry(WebRTCModule webRTCModule, Context context, Supplier<CameraEnumerator> cameraEnumerator) {
+        this.webRTCModule = webRTCModule;
+        this.context = context;
+        this.cameraEnumerator = cameraEnumerator;
+    }
+
+    /**
+     * Starts listening for device changes. The callbacks fire once for the current devices when registered,
+     * which doesn't produce events: there is nothing to compare to until the devices are enumerated.
+     */
+    void start() {
+        Handler handler = new Handler(Looper.getMainLooper());
+
+        CameraManager cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        if (cameraManager != null) {
+            cameraManager.registerAvailabilityCallback(availabilityCallback, handler);
+        }
+
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager != null) {
+            audioManager.registerAudioDeviceCallback(audioDeviceCallback, handler);
+        }
+    }
+
+    /**
+     * Stops listening for device changes. The system services outlive the module, so this must be called when
+     * it's invalidated (e.g. on a reload), or the callbacks of every previous instance keep firing.
+     */
+    void stop() {
+        CameraManager cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        if (cameraManager != null) {
+            cameraManager.unregisterAvailabilityCallback(availabilityCallback);
+        }
+
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager != null) {
+            audioManager.unregisterAudioDeviceCallback(audioDeviceCallback);
+        }
+    }
+
+    ReadableArray getDevices() {
+        if (cameraNames == null) {
+            enumerateCameras(cameraEnumerator.get().getDeviceNames());
+            audioInputIds.clear();
+            audioInputIds.addAll(getAudioInputIds());
+        }
+
+        WritableArray array = Arguments.createArray();
+
+        for (int i = 0; i < videoDevices.size(); ++i) {
+            VideoDevice device = videoDevices.get(i);
+            if (device == null) {
+                continue;
+            }
+            WritableMap params = Arguments.createMap();
+            params.putString("facing", device.isFrontFacing ? "front" : "environment");
+            params.putString("deviceId", "" + i);
+            params.putString("groupId", "");
+            params.putString("label", device.name);
+            params.putString("kind", "videoinput");
+            array.pushMap(params);
+        }
+
+        // The audio input is selected by the audio routing of the system, there is a single one to pick.
+        WritableMap audio = Arguments.createMap();
+        audio.putString("deviceId", "audio-1");
+        audio.putString("groupId", "");
+        audio.putString("label", "Audio");
+        audio.putString("kind", "audioinput");
+        array.pushMap(audio);
+
+        return array;
+    }
+
+    private void enumerateCameras(String[] names) {
+        CameraEnumerator enumerator = cameraEnumerator.get();
+
+        cameraNames = names;
+        videoDevices.clear();
+        for (String name : names) {
+            VideoDevice device = null;
+            try {
+                // This can throw an exception when using the Camera 1 API.
+                device = new VideoDevice(name, enumerator.isFrontFacing(name));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to check the facing mode of camera");
+            }
+            // Keep a placeholder, the index is the device ID.
+            videoDevices.add(device);
+        }
+    }
+
+    private void refreshCameras() {
+        if (cameraNames == null) {
+            return;
+        }
+
+        // Cameras become (un)available when opened and closed too, only the list of names tells whether they
+        // were connected or disconnected.
+        String[] names = cameraEnumerator.get().getDeviceNames();
+        if (Arrays.equals(names, cameraNames)) {
+            return;
+        }
+
+        Log.d(TAG, "Cameras changed: " + Arrays.toString(names));
+        enumerateCameras(names);
+        webRTCModule.sendEvent("mediaDevicesOnDeviceChange", Arguments.createMap());
+    }
+
+    private void refreshAudioInputs() {
+        if (cameraNames == null) {
+            return;
+        }
+
+        Set<Integer> ids = getAudioInputIds();
+        if (ids.equals(audioInputIds)) {
+            return;
+        }
+
+        Log.d(TAG, "Audio inputs changed");
+        audioInputIds.clear();
+        audioInputIds.addAll(ids);
+        webRTCModule.sendEvent("mediaDevicesOnDeviceChange", Arguments.createMap());
+    }
+
+    private Set<Integer> getAudioInputIds() {
+        Set<Integer> ids = new HashSet<>();
+
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager != null) {
+            for (AudioDeviceInfo device : audioManager.getDevices(AudioManager.GET_DEVICES_INPUTS)) {
+                ids.add(device.getId());
+            }
+        }
+
+        return ids;
+    }
+}
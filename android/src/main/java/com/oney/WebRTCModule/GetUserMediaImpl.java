@@ -7,6 +7,7 @@ import android.media.projection.MediaProjectionManager;
 import android.util.DisplayMetrics;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 
 import com.facebook.react.bridge.Arguments;
@@ -19,6 +20,7 @@ import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.oney.WebRTCModule.videoEffects.FrameRateLimiter;
 import com.oney.WebRTCModule.videoEffects.ProcessorProvider;
 import com.oney.WebRTCModule.videoEffects.VideoEffectProcessor;
 import com.oney.WebRTCModule.videoEffects.VideoFrameProcessor;
@@ -56,6 +58,7 @@ class GetUserMediaImpl {
     private final Map<String, TrackPrivate> tracks = new HashMap<>();
 
     private final WebRTCModule webRTCModule;
+    private final DeviceRegistry deviceRegistry;
 
     private Promise displayMediaPromise;
     private Intent mediaProjectionPermissionResultData;
@@ -64,6 +67,9 @@ class GetUserMediaImpl {
         this.webRTCModule = webRTCModule;
         this.reactContext = reactContext;
 
+        deviceRegistry = new DeviceRegistry(webRTCModule, reactContext, this::getCameraEnumerator);
+        deviceRegistry.start();
+
         reactContext.addActivityEventListener(new BaseActivityEventListener() {
             @Override
             public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
@@ -92,7 +98,7 @@ class GetUserMediaImpl {
         Log.d(TAG, "getUserMedia(audio): " + audioConstraintsMap);
 
         String id = UUID.randomUUID().toString();
-        PeerConnectionFactory pcFactory = webRTCModule.mFactory;
+        PeerConnectionFactory pcFactory = webRTCModule.getFactory();
         MediaConstraints peerConstraints = webRTCModule.constraintsForOptions(audioConstraintsMap);
 
         // Convert given constraints into the internal webrtc media constraints.
@@ -155,37 +161,15 @@ class GetUserMediaImpl {
         return cameraEnumerator;
     }
 
-    ReadableArray enumerateDevices() {
-        WritableArray array = Arguments.createArray();
-        String[] devices = getCameraEnumerator().getDeviceNames();
-
-        for (int i = 0; i < devices.length; ++i) {
-            String deviceName = devices[i];
-            boolean isFrontFacing;
-            try {
-                // This can throw an exception when using the Camera 1 API.
-                isFrontFacing = getCameraEnumerator().isFrontFacing(deviceName);
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to check the facing mode of camera");
-                continue;
-            }
-            WritableMap params = Arguments.createMap();
-            params.putString("facing", isFrontFacing ? "front" : "environment");
-            params.putString("deviceId", "" + i);
-            params.putString("groupId", "");
-            params.putString("label", deviceName);
-            params.putString("kind", "videoinput");
-            array.pushMap(params);
-        }
-
-        WritableMap audio = Arguments.createMap();
-        audio.putString("deviceId", "audio-1");
-        audio.putString("groupId", "");
-        audio.putString("label", "Audio");
-        audio.putString("kind", "audioinput");
-        array.pushMap(audio);
+    /**
+     * Releases what outlives the module, called when it's invalidated.
+     */
+    void invalidate() {
+        deviceRegistry.stop();
+    }
 
-        return array;
+    ReadableArray enumerateDevices() {
+        return deviceRegistry.getDevices();
     }
 
     MediaStreamTrack getTrack(String id) {
@@ -282,6 +266,75 @@ class GetUserMediaImpl {
         }
     }
 
+    void setCameraStandby(String trackId, boolean enabled, @Nullable String deviceId, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            CameraCaptureController captureController = (CameraCaptureController) track.videoCaptureController;
+            captureController.setStandby(enabled, deviceId, e -> {
+                if (e != null) {
+                    promise.reject(e);
+                    return;
+                }
+
+                promise.resolve(null);
+            });
+        } else {
+            promise.reject(new Exception("Camera track not found!"));
+        }
+    }
+
+    void switchToStandbyCamera(String trackId, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            CameraCaptureController captureController = (CameraCaptureController) track.videoCaptureController;
+            captureController.switchToStandby(e -> {
+                if (e != null) {
+                    promise.reject(e);
+                    return;
+                }
+
+                promise.resolve(captureController.getSettings());
+            });
+        } else {
+            promise.reject(new Exception("Camera track not found!"));
+        }
+    }
+
+    void setAdaptiveCapture(String trackId, @Nullable ReadableMap options, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            CameraCaptureController captureController = (CameraCaptureController) track.videoCaptureController;
+            captureController.setAdaptiveCapture(
+                    options == null ? null : AdaptiveCapturePolicy.Options.fromReadableMap(options),
+                    trackId,
+                    webRTCModule);
+            promise.resolve(captureController.getSettings());
+        } else {
+            promise.reject(new Exception("Camera track not found!"));
+        }
+    }
+
+    void setStaticContentDropping(String trackId, @Nullable ReadableMap options, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof ScreenCaptureController) {
+            ((ScreenCaptureController) track.videoCaptureController)
+                    .setStaticContentDropping(
+                            options == null ? null : StaticContentFilter.Options.fromReadableMap(options));
+            promise.resolve(null);
+        } else {
+            promise.reject(new Exception("Screen capture track not found!"));
+        }
+    }
+
+    void getCameraSwitchStats(String trackId, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            promise.resolve(((CameraCaptureController) track.videoCaptureController).getSwitchStats());
+        } else {
+            promise.reject(new Exception("Camera track not found!"));
+        }
+    }
+
     void getDisplayMedia(Promise promise) {
         if (this.displayMediaPromise != null) {
             promise.reject(new RuntimeException("Another operation is pending."));
@@ -341,7 +394,7 @@ class GetUserMediaImpl {
 
     void createStream(MediaStreamTrack[] tracks, BiConsumer<String, ArrayList<WritableMap>> successCallback) {
         String streamId = UUID.randomUUID().toString();
-        MediaStream mediaStream = webRTCModule.mFactory.createLocalMediaStream(streamId);
+        MediaStream mediaStream = webRTCModule.getFactory().createLocalMediaStream(streamId);
 
         ArrayList<WritableMap> tracksInfo = new ArrayList<>();
 
@@ -404,7 +457,7 @@ class GetUserMediaImpl {
             return null;
         }
 
-        PeerConnectionFactory pcFactory = webRTCModule.mFactory;
+        PeerConnectionFactory pcFactory = webRTCModule.getFactory();
         EglBase.Context eglContext = EglUtils.getRootEglBaseContext();
         SurfaceTextureHelper surfaceTextureHelper = SurfaceTextureHelper.create("CaptureThread", eglContext);
 
@@ -419,12 +472,16 @@ class GetUserMediaImpl {
         videoCaptureController.setCapturerEventsListener(eventsEmitter);
 
         VideoSource videoSource = pcFactory.createVideoSource(videoCapturer.isScreencast());
-        videoCapturer.initialize(surfaceTextureHelper, reactContext, videoSource.getCapturerObserver());
+        videoCaptureController.initializeCapturer(
+                surfaceTextureHelper, reactContext, videoSource.getCapturerObserver());
 
         VideoTrack track = pcFactory.createVideoTrack(id, videoSource);
 
         track.setEnabled(true);
         tracks.put(id, new TrackPrivate(track, videoSource, videoCaptureController, surfaceTextureHelper));
+        if (videoCaptureController instanceof CameraCaptureController) {
+            ((CameraCaptureController) videoCaptureController).setCapturerSwapListener(() -> onCapturerSwapped(id));
+        }
 
         videoCaptureController.startCapture();
 
@@ -441,8 +498,9 @@ class GetUserMediaImpl {
         TrackPrivate track = tracks.get(trackId);
 
         if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
-            VideoSource videoSource = (VideoSource) track.mediaSource;
-            SurfaceTextureHelper surfaceTextureHelper = track.surfaceTextureHelper;
+            // The helper of the camera captured from, which isn't the track's one after a standby switch.
+            SurfaceTextureHelper surfaceTextureHelper =
+                    ((CameraCaptureController) track.videoCaptureController).getSurfaceTextureHelper();
 
             if (names != null) {
                 List<VideoFrameProcessor> processors =
@@ -460,15 +518,74 @@ class GetUserMediaImpl {
                                 .filter(Objects::nonNull)
                                 .collect(Collectors.toList());
 
-                VideoEffectProcessor videoEffectProcessor = new VideoEffectProcessor(processors, surfaceTextureHelper);
-                videoSource.setVideoProcessor(videoEffectProcessor);
-
+                track.videoEffectProcessor = new VideoEffectProcessor(processors, surfaceTextureHelper);
             } else {
-                videoSource.setVideoProcessor(null);
+                track.videoEffectProcessor = null;
             }
+            updateVideoProcessor(track);
         }
     }
 
+    /**
+     * Moves the video effects of a track to the {@link SurfaceTextureHelper} of the standby camera it switched
+     * to. The frames delivered before this runs still go through the previous helper, which stays alive for the
+     * camera now on standby.
+     */
+    private void onCapturerSwapped(String trackId) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track == null || track.videoEffectProcessor == null) {
+            return;
+        }
+
+        CameraCaptureController captureController = (CameraCaptureController) track.videoCaptureController;
+        track.videoEffectProcessor =
+                track.videoEffectProcessor.withTextureHelper(captureController.getSurfaceTextureHelper());
+        updateVideoProcessor(track);
+    }
+
+    /**
+     * Limits the frame rate of a local video track by dropping captured frames, without reconfiguring the
+     * capturer. A frame rate of 0 removes the limit.
+     */
+    void setMaxFrameRate(String trackId, double maxFrameRate, Promise promise) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track == null || !(track.mediaSource instanceof VideoSource)) {
+            promise.reject(new Exception("Video track not found!"));
+            return;
+        }
+
+        if (maxFrameRate < 0 || Double.isNaN(maxFrameRate)) {
+            promise.reject("E_INVALID", "Invalid frame rate: " + maxFrameRate);
+            return;
+        }
+
+        track.maxFrameRate = maxFrameRate;
+        if (track.frameRateLimiter != null && maxFrameRate > 0) {
+            track.frameRateLimiter.setMaxFrameRate(maxFrameRate);
+        } else {
+            updateVideoProcessor(track);
+        }
+        promise.resolve(null);
+    }
+
+    /**
+     * Sets the video processor of a track: the frame rate limiter first, so dropped frames don't go through
+     * the video effects, then the video effects.
+     */
+    private void updateVideoProcessor(TrackPrivate track) {
+        VideoSource videoSource = (VideoSource) track.mediaSource;
+        VideoProcessor processor = track.videoEffectProcessor;
+
+        if (track.maxFrameRate > 0) {
+            track.frameRateLimiter = new FrameRateLimiter(track.maxFrameRate, processor);
+            processor = track.frameRateLimiter;
+        } else {
+            track.frameRateLimiter = null;
+        }
+
+        videoSource.setVideoProcessor(processor);
+    }
+
     void registerTrack(AudioTrack track, AudioSource source) {
         tracks.put(track.id(), new TrackPrivate(track, source, null, null));
     }
@@ -498,6 +615,15 @@ class GetUserMediaImpl {
 
         private final SurfaceTextureHelper surfaceTextureHelper;
 
+        /**
+         * The video processors of {@link #mediaSource}, composed by {@link #updateVideoProcessor}.
+         */
+        @Nullable
+        private VideoEffectProcessor videoEffectProcessor;
+        @Nullable
+        private FrameRateLimiter frameRateLimiter;
+        private double maxFrameRate;
+
         /**
          * Whether this object has been disposed or not.
          */
@@ -29,15 +29,40 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 class PeerConnectionObserver implements PeerConnection.Observer {
     private final static String TAG = WebRTCModule.TAG;
 
     private final Map<String, DataChannelWrapper> dataChannels;
-    private final int id;
+    // Set in the executor when a pooled observer is claimed, read on the signaling thread.
+    private volatile int id;
     private int transceiverNextId = 0;
 
+    /**
+     * When enabled, events and operation results only carry version numbers
+     * for the local / remote descriptions instead of the full SDP text, which
+     * JS fetches on demand. The versions are only touched in the executor.
+     */
+    private boolean lazySessionDescriptions = false;
+    private int localSdpVersion = 0;
+    private int remoteSdpVersion = 0;
+
+    @Nullable
+    private SdpTransformer sdpTransformer;
+
+    /**
+     * Transceiver ID -> fingerprint of the state last reported to JS, used to only
+     * send the transceivers which changed after a negotiation. Only touched in the executor.
+     */
+    private final Map<String, String> reportedTransceiverStates = new HashMap<>();
+
+    // Sender ID -> controller, see SimulcastLayerController.
+    private final Map<String, SimulcastLayerController> layerControllers = new HashMap<>();
+    @Nullable
+    private QualityLimitationMonitor qualityLimitationMonitor;
+
     private PeerConnection peerConnection;
     final Map<String, String> remoteStreamIds; // Stream ID -> React tag
     final Map<String, MediaStream> remoteStreams; // React tag -> MediaStream
@@ -55,6 +80,28 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         this.videoTrackAdapters = new VideoTrackAdapter(webRTCModule, id);
     }
 
+    /**
+     * Binds a pooled observer to the id of the JS RTCPeerConnection which claimed it,
+     * see {@link PeerConnectionPool}.
+     */
+    void setId(int id) {
+        this.id = id;
+        videoTrackAdapters.setPeerConnectionId(id);
+    }
+
+    /**
+     * Sends an event to JS, unless the observer is pooled: no RTCPeerConnection exists for it yet, so the events
+     * fired while it's idle (e.g. ICE or signaling state changes of the pre-warmed PeerConnection) are dropped.
+     */
+    private void sendEvent(String eventName, WritableMap params) {
+        if (id == PeerConnectionPool.POOLED_ID) {
+            Log.d(TAG, "Dropping " + eventName + " of a pooled PeerConnection");
+            return;
+        }
+
+        webRTCModule.sendEvent(eventName, params);
+    }
+
     PeerConnection getPeerConnection() {
         return peerConnection;
     }
@@ -66,6 +113,8 @@ class PeerConnectionObserver implements PeerConnection.Observer {
     void close() {
         Log.d(TAG, "PeerConnection.close() for " + id);
 
+        disposeLayerControllers();
+        disposeQualityLimitationMonitor();
         peerConnection.close();
     }
 
@@ -79,6 +128,9 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             }
         }
 
+        disposeLayerControllers();
+        disposeQualityLimitationMonitor();
+
         // Remove DataChannel observers
         for (DataChannelWrapper dcw : dataChannels.values()) {
             DataChannel dataChannel = dcw.getDataChannel();
@@ -94,6 +146,104 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         remoteStreams.clear();
         remoteTracks.clear();
         dataChannels.clear();
+        reportedTransceiverStates.clear();
+    }
+
+    boolean isLazySessionDescriptions() {
+        return lazySessionDescriptions;
+    }
+
+    void setLazySessionDescriptions(boolean lazySessionDescriptions) {
+        this.lazySessionDescriptions = lazySessionDescriptions;
+    }
+
+    void setSdpTransformer(@Nullable SdpTransformer sdpTransformer) {
+        this.sdpTransformer = sdpTransformer;
+    }
+
+    boolean hasSdpTransformer() {
+        return sdpTransformer != null;
+    }
+
+    /**
+     * Applies the configured SDP transformations to a locally created description.
+     */
+    SessionDescription transformLocalDescription(SessionDescription sdp) {
+        if (sdpTransformer == null) {
+            return sdp;
+        }
+
+        return new SessionDescription(sdp.type, sdpTransformer.transformLocal(sdp.description));
+    }
+
+    /**
+     * Applies the configured SDP transformations to a description received from the remote peer.
+     */
+    SessionDescription transformRemoteDescription(SessionDescription sdp) {
+        if (sdpTransformer == null) {
+            return sdp;
+        }
+
+        return new SessionDescription(sdp.type, sdpTransformer.transformRemote(sdp.description));
+    }
+
+    /**
+     * Marks the local description as (potentially) changed. Must be called in the executor.
+     */
+    void localDescriptionChanged() {
+        localSdpVersion++;
+    }
+
+    /**
+     * Marks the remote description as (potentially) changed. Must be called in the executor.
+     */
+    void remoteDescriptionChanged() {
+        remoteSdpVersion++;
+    }
+
+    /**
+     * Adds the current description versions to the given map, if lazy session
+     * descriptions are enabled.
+     */
+    void putSdpVersions(WritableMap params) {
+        if (lazySessionDescriptions) {
+            params.putInt("localSdpVersion", localSdpVersion);
+            params.putInt("remoteSdpVersion", remoteSdpVersion);
+        }
+    }
+
+    /**
+     * Serializes the current local or remote description along with the
+     * description versions. Must be called in the executor.
+     */
+    WritableMap getSessionDescription(boolean local) {
+        WritableMap params = Arguments.createMap();
+        SessionDescription sdp = local ? peerConnection.getLocalDescription() : peerConnection.getRemoteDescription();
+
+        // Can happen when doing a rollback.
+        if (sdp != null) {
+            params.putString("type", sdp.type.canonicalForm());
+            params.putString("sdp", sdp.description);
+        }
+        params.putInt("localSdpVersion", localSdpVersion);
+        params.putInt("remoteSdpVersion", remoteSdpVersion);
+
+        return params;
+    }
+
+    /**
+     * Records the given transceiver state as reported. Returns false if it is the same
+     * as the last reported one, in which case it doesn't need to be sent again.
+     */
+    boolean updateTransceiverState(String transceiverId, String state) {
+        return !state.equals(reportedTransceiverStates.put(transceiverId, state));
+    }
+
+    /**
+     * Forgets the reported state of transceivers which no longer exist.
+     */
+    void retainTransceiverStates(Set<String> transceiverIds) {
+        reportedTransceiverStates.keySet().retainAll(transceiverIds);
     }
 
     public synchronized int getNextTransceiverId() {
@@ -144,6 +294,115 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         return null;
     }
 
+    /**
+     * Attaches a {@link SimulcastLayerController} to the given sender, replacing any existing one, or
+     * removes it if options is null.
+     *
+     * @return false if there is no such sender.
+     */
+    boolean setLayerController(String senderId, @Nullable SimulcastLayerController.Options options) {
+        removeLayerController(senderId);
+
+        RtpSender sender = getSender(senderId);
+        if (sender == null) {
+            return false;
+        }
+
+        if (options != null) {
+            layerControllers.put(senderId,
+                    new SimulcastLayerController(peerConnection, sender, options, this::onSenderLayersChanged));
+        }
+
+        return true;
+    }
+
+    @Nullable
+    SimulcastLayerController getLayerController(String senderId) {
+        return layerControllers.get(senderId);
+    }
+
+    void removeLayerController(String senderId) {
+        SimulcastLayerController controller = layerControllers.remove(senderId);
+        if (controller != null) {
+            controller.dispose();
+        }
+    }
+
+    private void disposeLayerControllers() {
+        for (SimulcastLayerController controller : layerControllers.values()) {
+            controller.dispose();
+        }
+        layerControllers.clear();
+    }
+
+    private void onSenderLayersChanged(RtpSender sender, String reason, int level, double availableOutgoingBitrate) {
+        WritableMap params = Arguments.createMap();
+        params.putInt("pcId", id);
+        params.putString("senderId", sender.id());
+        params.putString("reason", reason);
+        params.putInt("level", level);
+        if (!Double.isNaN(availableOutgoingBitrate)) {
+            params.putDouble("availableOutgoingBitrate", availableOutgoingBitrate);
+        }
+        params.putMap("rtpParameters", SerializeUtils.serializeRtpParameters(sender.getParameters()));
+
+        sendEvent("senderLayersChanged", params);
+    }
+
+    /**
+     * Starts or stops reporting changes of the sender's qualityLimitationReason, see
+     * {@link QualityLimitationMonitor}.
+     *
+     * @return false if there is no such sender.
+     */
+    boolean setQualityLimitationMonitoring(String senderId, boolean enabled, long intervalMs) {
+        if (!enabled) {
+            if (qualityLimitationMonitor != null) {
+                qualityLimitationMonitor.remove(senderId);
+            }
+            return true;
+        }
+
+        if (getSender(senderId) == null) {
+            return false;
+        }
+
+        if (qualityLimitationMonitor == null) {
+            qualityLimitationMonitor = new QualityLimitationMonitor(peerConnection, this::onQualityLimitationChanged);
+        }
+        qualityLimitationMonitor.add(senderId, intervalMs);
+
+        return true;
+    }
+
+    private void disposeQualityLimitationMonitor() {
+        if (qualityLimitationMonitor != null) {
+            qualityLimitationMonitor.dispose();
+            qualityLimitationMonitor = null;
+        }
+    }
+
+    private void onQualityLimitationChanged(
+            String senderId, QualityLimitationMonitor.Limitation limitation, String previousReason) {
+        WritableMap params = Arguments.createMap();
+        params.putInt("pcId", id);
+        params.putString("senderId", senderId);
+        params.putString("reason", limitation.reason);
+        params.putString("previousReason", previousReason);
+        params.putDouble("resolutionChanges", limitation.resolutionChanges);
+        if (limitation.durations != null) {
+            WritableMap durations = Arguments.createMap();
+            for (Map.Entry<String, Object> entry : limitation.durations.entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    durations.putDouble(entry.getKey(), ((Number) entry.getValue()).doubleValue());
+                }
+            }
+            params.putMap("durations", durations);
+        }
+
+        sendEvent("senderQualityLimitationChanged", params);
+    }
+
     RtpTransceiver getTransceiver(String id) {
         if (this.peerConnection == null) {
             return null;
@@ -303,17 +562,24 @@ class PeerConnectionObserver implements PeerConnection.Observer {
 
             params.putMap("candidate", candidateParams);
 
-            SessionDescription newSdp = peerConnection.getLocalDescription();
-            WritableMap newSdpMap = Arguments.createMap();
+            // The new candidate is now part of the local description.
+            localDescriptionChanged();
 
-            // Can happen when doing a rollback.
-            if (newSdp != null) {
-                newSdpMap.putString("type", newSdp.type.canonicalForm());
-                newSdpMap.putString("sdp", newSdp.description);
+            if (lazySessionDescriptions) {
+                putSdpVersions(params);
+            } else {
+                SessionDescription newSdp = peerConnection.getLocalDescription();
+                WritableMap newSdpMap = Arguments.createMap();
+
+                // Can happen when doing a rollback.
+                if (newSdp != null) {
+                    newSdpMap.putString("type", newSdp.type.canonicalForm());
+                    newSdpMap.putString("sdp", newSdp.description);
+                }
+                params.putMap("sdp", newSdpMap);
             }
-            params.putMap("sdp", newSdpMap);
 
-            webRTCModule.sendEvent("peerConnectionGotICECandidate", params);
+            sendEvent("peerConnectionGotICECandidate", params);
         });
     }
 
@@ -326,7 +592,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             WritableMap params = Arguments.createMap();
             params.putInt("pcId", id);
             params.putString("iceConnectionState", iceConnectionStateString(iceConnectionState));
-            webRTCModule.sendEvent("peerConnectionIceConnectionChanged", params);
+            sendEvent("peerConnectionIceConnectionChanged", params);
         });
     }
 
@@ -337,7 +603,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             params.putInt("pcId", id);
             params.putString("connectionState", peerConnectionStateString(peerConnectionState));
 
-            webRTCModule.sendEvent("peerConnectionStateChanged", params);
+            sendEvent("peerConnectionStateChanged", params);
         });
     }
 
@@ -353,7 +619,10 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             params.putInt("pcId", id);
             params.putString("iceGatheringState", iceGatheringStateString(iceGatheringState));
 
-            if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE) {
+            if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE && lazySessionDescriptions) {
+                localDescriptionChanged();
+                putSdpVersions(params);
+            } else if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE) {
                 SessionDescription newSdp = peerConnection.getLocalDescription();
                 WritableMap newSdpMap = Arguments.createMap();
 
@@ -364,7 +633,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
                 }
                 params.putMap("sdp", newSdpMap);
             }
-            webRTCModule.sendEvent("peerConnectionIceGatheringChanged", params);
+            sendEvent("peerConnectionIceGatheringChanged", params);
         });
     }
 
@@ -395,7 +664,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             params.putInt("pcId", id);
             params.putMap("dataChannel", info);
 
-            webRTCModule.sendEvent("peerConnectionDidOpenDataChannel", params);
+            sendEvent("peerConnectionDidOpenDataChannel", params);
         });
     }
 
@@ -404,7 +673,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         ThreadUtils.runOnExecutor(() -> {
             WritableMap params = Arguments.createMap();
             params.putInt("pcId", id);
-            webRTCModule.sendEvent("peerConnectionOnRenegotiationNeeded", params);
+            sendEvent("peerConnectionOnRenegotiationNeeded", params);
         });
     }
 
@@ -414,7 +683,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             WritableMap params = Arguments.createMap();
             params.putInt("pcId", id);
             params.putString("signalingState", signalingStateString(signalingState));
-            webRTCModule.sendEvent("peerConnectionSignalingStateChanged", params);
+            sendEvent("peerConnectionSignalingStateChanged", params);
         });
     }
 
@@ -479,7 +748,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             params.putMap("transceiver", SerializeUtils.serializeTransceiver(id, transceiver));
             params.putInt("pcId", this.id);
 
-            webRTCModule.sendEvent("peerConnectionOnTrack", params);
+            sendEvent("peerConnectionOnTrack", params);
         });
     }
 
@@ -502,7 +771,7 @@ class PeerConnectionObserver implements PeerConnection.Observer {
             params.putInt("pcId", this.id);
             params.putString("receiverId", receiver.id());
 
-            webRTCModule.sendEvent("peerConnectionOnRemoveTrack", params);
+            sendEvent("peerConnectionOnRemoveTrack", params);
         });
     };
 
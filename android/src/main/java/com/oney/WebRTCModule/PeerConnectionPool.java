@@ -0,0 +1,127 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.PeerConnection;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a number of idle PeerConnections created ahead of time with the configuration the app expects to
+ * use, so DTLS certificate generation and ICE port allocation (and candidate pre-gathering, when the
+ * configuration sets iceCandidatePoolSize) happen before peerConnectionInit is called.
+ *
+ * Pooled observers use {@link #POOLED_ID} until claimed, at which point they are bound to the JS id.
+ * All methods must be called in the executor.
+ */
+class PeerConnectionPool {
+    private static final String TAG = WebRTCModule.TAG;
+
+    static final int POOLED_ID = -1;
+
+    private final WebRTCModule webRTCModule;
+    private final Deque<PeerConnectionObserver> idle = new ArrayDeque<>();
+
+    private Map<String, Object> configKey = Collections.emptyMap();
+    @Nullable
+    private PeerConnection.RTCConfiguration rtcConfiguration;
+    private int size = 0;
+
+    PeerConnectionPool(WebRTCModule webRTCModule) {
+        this.webRTCModule = webRTCModule;
+    }
+
+    /**
+     * Returns the part of the given JS configuration which determines whether a pooled PeerConnection can
+     * be used. Keys handled by {@link PeerConnectionObserver} itself are not part of it.
+     */
+    static Map<String, Object> configKey(@Nullable ReadableMap configuration) {
+        if (configuration == null) {
+            return Collections.emptyMap();
+        }
+
+        HashMap<String, Object> key = configuration.toHashMap();
+        key.remove("lazySessionDescriptions");
+        key.remove("sdpTransforms");
+
+        return key;
+    }
+
+    /**
+     * (Re)configures the pool. Idle PeerConnections created with a different configuration are disposed.
+     */
+    void configure(@Nullable ReadableMap configuration, PeerConnection.RTCConfiguration rtcConfiguration, int size) {
+        Map<String, Object> key = configKey(configuration);
+        if (!key.equals(configKey)) {
+            clear();
+        }
+
+        this.configKey = key;
+        this.rtcConfiguration = rtcConfiguration;
+        this.size = Math.max(0, size);
+
+        while (idle.size() > this.size) {
+            idle.removeLast().dispose();
+        }
+
+        fill();
+    }
+
+    /**
+     * Takes an idle PeerConnection created with the given configuration, if any, and binds it to the
+     * given id. The pool is refilled in a separate executor task.
+     */
+    @Nullable
+    PeerConnectionObserver claim(@Nullable ReadableMap configuration, int id) {
+        if (idle.isEmpty() || !configKey(configuration).equals(configKey)) {
+            return null;
+        }
+
+        PeerConnectionObserver observer = idle.removeFirst();
+        observer.setId(id);
+
+        Log.d(TAG, "PeerConnectionPool: claimed PeerConnection for " + id + ", " + idle.size() + " left");
+
+        ThreadUtils.runOnExecutor(this::fill);
+
+        return observer;
+    }
+
+    /**
+     * Disposes all idle PeerConnections and stops refilling the pool.
+     */
+    void clear() {
+        for (PeerConnectionObserver observer : idle) {
+            observer.dispose();
+        }
+
+        idle.clear();
+        size = 0;
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    private void fill() {
+        while (rtcConfiguration != null && idle.size() < size) {
+            PeerConnectionObserver observer = new PeerConnectionObserver(webRTCModule, POOLED_ID);
+            PeerConnection peerConnection = webRTCModule.getFactory().createPeerConnection(rtcConfiguration, observer);
+            if (peerConnection == null) {
+                Log.w(TAG, "PeerConnectionPool: failed to create PeerConnection");
+                return;
+            }
+
+            observer.setPeerConnection(peerConnection);
+            idle.addLast(observer);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpSender;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Polls the stats of the monitored senders of a PeerConnection and reports when the reason their encoder is
+ * limited (qualityLimitationReason: none, cpu, bandwidth or other) changes. With simulcast the most severe
+ * reason among the active layers is reported.
+ *
+ * Must only be used in the executor.
+ */
+class QualityLimitationMonitor {
+    private static final Timer timer = new Timer("QualityLimitationMonitor", true);
+
+    // From the least to the most severe.
+    private static final List<String> REASONS = Arrays.asList("none", "other", "bandwidth", "cpu");
+
+    static class Limitation {
+        final String reason;
+        @Nullable
+        final Map<String, Object> durations;
+        final long resolutionChanges;
+
+        Limitation(String reason, @Nullable Map<String, Object> durations, long resolutionChanges) {
+            this.reason = reason;
+            this.durations = durations;
+            this.resolutionChanges = resolutionChanges;
+        }
+    }
+
+    interface Listener {
+        void onQualityLimitationChanged(String senderId, Limitation limitation, String previousReason);
+    }
+
+    private final PeerConnection peerConnection;
+    private final Listener listener;
+    // Sender ID -> last reported reason.
+    private final Map<String, String> senders = new HashMap<>();
+
+    @Nullable
+    private TimerTask pollTask;
+    private long intervalMs;
+
+    QualityLimitationMonitor(PeerConnection peerConnection, Listener listener) {
+        this.peerConnection = peerConnection;
+        this.listener = listener;
+    }
+
+    void add(String senderId, long intervalMs) {
+        if (!senders.containsKey(senderId)) {
+            senders.put(senderId, "none");
+        }
+
+        // All senders are polled together, at the shortest requested interval.
+        if (pollTask == null || intervalMs < this.intervalMs) {
+            schedule(intervalMs);
+        }
+    }
+
+    void remove(String senderId) {
+        senders.remove(senderId);
+
+        if (senders.isEmpty()) {
+            dispose();
+        }
+    }
+
+    void dispose() {
+        senders.clear();
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+    }
+
+    private void schedule(long intervalMs) {
+        if (pollTask != null) {
+            pollTask.cancel();
+        }
+
+        this.intervalMs = intervalMs;
+        pollTask = new TimerTask() {
+            @Override
+            public void run() {
+                ThreadUtils.runOnExecutor(QualityLimitationMonitor.this::poll);
+            }
+        };
+        timer.schedule(pollTask, intervalMs, intervalMs);
+    }
+
+    private void poll() {
+        if (pollTask == null) {
+            return;
+        }
+
+        for (RtpSender sender : peerConnection.getSenders()) {
+            String senderId = sender.id();
+            if (!senders.containsKey(senderId)) {
+                continue;
+            }
+
+            peerConnection.getStats(sender, report -> ThreadUtils.runOnExecutor(() -> evaluate(senderId, report)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void evaluate(String senderId, RTCStatsReport report) {
+        String previousReason = senders.get(senderId);
+        if (previousReason == null) {
+            // No longer monitored.
+            return;
+        }
+
+        Limitation limitation = null;
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if (!"outbound-rtp".equals(stats.getType())) {
+                continue;
+            }
+
+            Map<String, Object> members = stats.getMembers();
+            Object reason = members.get("qualityLimitationReason");
+            if (!(reason instanceof String) || Boolean.FALSE.equals(members.get("active"))) {
+                continue;
+            }
+
+            if (limitation == null || REASONS.indexOf(reason) > REASONS.indexOf(limitation.reason)) {
+                Object durations = members.get("qualityLimitationDurations");
+                Object resolutionChanges = members.get("qualityLimitationResolutionChanges");
+                limitation = new Limitation((String) reason,
+                        durations instanceof Map ? (Map<String, Object>) durations : null,
+                        resolutionChanges instanceof Number ? ((Number) resolutionChanges).longValue() : 0);
+            }
+        }
+
+        if (limitation == null || limitation.reason.equals(previousReason)) {
+            return;
+        }
+
+        senders.put(senderId, limitation.reason);
+        listener.onQualityLimitationChanged(senderId, limitation, previousReason);
+    }
+}
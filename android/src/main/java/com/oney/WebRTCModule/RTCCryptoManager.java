@@ -129,7 +129,7 @@ public class RTCCryptoManager {
         } else if (type.equals("sender")) {
             RtpSender rtpSender = pco.getSender(rtpSenderId);
 
-            FrameCryptor frameCryptor = FrameCryptorFactory.createFrameCryptorForRtpSender(webRTCModule.mFactory,
+            FrameCryptor frameCryptor = FrameCryptorFactory.createFrameCryptorForRtpSender(webRTCModule.getFactory(),
                     rtpSender,
                     participantId,
                     frameCryptorAlgorithmFromInt(algorithm),
@@ -144,7 +144,7 @@ public class RTCCryptoManager {
         } else {
             RtpReceiver rtpReceiver = pco.getReceiver(rtpReceiverId);
 
-            FrameCryptor frameCryptor = FrameCryptorFactory.createFrameCryptorForRtpReceiver(webRTCModule.mFactory,
+            FrameCryptor frameCryptor = FrameCryptorFactory.createFrameCryptorForRtpReceiver(webRTCModule.getFactory(),
                     rtpReceiver,
                     participantId,
                     frameCryptorAlgorithmFromInt(algorithm),
@@ -0,0 +1,112 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RtpCapabilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches the sender / receiver RTP capabilities of a {@link PeerConnectionFactory}, both as returned by
+ * the factory and in serialized form. Querying them goes down to the codec factories, which enumerate the
+ * hardware codecs. The cache is dropped if a different factory is passed.
+ *
+ * Must only be used in the executor.
+ */
+class RtpCapabilitiesCache {
+    static class Entry {
+        final RtpCapabilities capabilities;
+
+        /**
+         * The serialized form of each codec in {@link RtpCapabilities#codecs}, in the same order.
+         */
+        final List<Map<String, Object>> codecs;
+
+        private final HashMap<String, Object> serialized;
+
+        Entry(RtpCapabilities capabilities, @Nullable Function<String, List<String>> scalabilityModes) {
+            this.capabilities = capabilities;
+
+            List<Map<String, Object>> codecs = new ArrayList<>(capabilities.codecs.size());
+            List<Object> serializedCodecs = new ArrayList<>(capabilities.codecs.size());
+            for (RtpCapabilities.CodecCapability codec : capabilities.codecs) {
+                HashMap<String, Object> codecMap = SerializeUtils.serializeRtpCapabilitiesCodec(codec).toHashMap();
+                codecs.add(codecMap);
+
+                List<String> modes =
+                        scalabilityModes != null ? scalabilityModes.apply(codec.name) : Collections.emptyList();
+                if (modes.isEmpty()) {
+                    serializedCodecs.add(codecMap);
+                } else {
+                    HashMap<String, Object> withModes = new HashMap<>(codecMap);
+                    withModes.put("scalabilityModes", new ArrayList<Object>(modes));
+                    serializedCodecs.add(withModes);
+                }
+            }
+            this.codecs = Collections.unmodifiableList(codecs);
+            this.serialized = new HashMap<>();
+            this.serialized.put("codecs", serializedCodecs);
+        }
+
+        /**
+         * Returns a new map for the serialized capabilities, maps can only be sent over the bridge once.
+         */
+        WritableMap toWritableMap() {
+            return Arguments.makeNativeMap(serialized);
+        }
+    }
+
+    private PeerConnectionFactory factory;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    @Nullable
+    private Function<String, List<String>> scalabilityModes;
+
+    /**
+     * Sets the lookup for the scalability modes supported for each video codec (by name), which are added
+     * to the serialized sender capabilities.
+     */
+    void setScalabilityModes(@Nullable Function<String, List<String>> scalabilityModes) {
+        this.scalabilityModes = scalabilityModes;
+        entries.clear();
+    }
+
+    Entry getSenderCapabilities(PeerConnectionFactory factory, MediaStreamTrack.MediaType mediaType) {
+        return get(factory, true, mediaType);
+    }
+
+    Entry getReceiverCapabilities(PeerConnectionFactory factory, MediaStreamTrack.MediaType mediaType) {
+        return get(factory, false, mediaType);
+    }
+
+    private Entry get(PeerConnectionFactory factory, boolean sender, MediaStreamTrack.MediaType mediaType) {
+        if (this.factory != factory) {
+            this.factory = factory;
+            entries.clear();
+        }
+
+        String key = (sender ? "sender:" : "receiver:") + mediaType.name();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (sender) {
+                boolean video = mediaType == MediaStreamTrack.MediaType.MEDIA_TYPE_VIDEO;
+                entry = new Entry(factory.getRtpSenderCapabilities(mediaType), video ? scalabilityModes : null);
+            } else {
+                entry = new Entry(factory.getRtpReceiverCapabilities(mediaType), null);
+            }
+            entries.put(key, entry);
+        }
+
+        return entry;
+    }
+}
@@ -8,7 +8,11 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.OrientationEventListener;
 
+import androidx.annotation.Nullable;
+
+import org.webrtc.CapturerObserver;
 import org.webrtc.ScreenCapturerAndroid;
+import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 
 public class ScreenCaptureController extends AbstractVideoCaptureController {
@@ -25,6 +29,9 @@ public class ScreenCaptureController extends AbstractVideoCaptureController {
 
     private final Context context;
 
+    @Nullable
+    private StaticContentFilter staticContentFilter;
+
     public ScreenCaptureController(Context context, int width, int height, Intent mediaProjectionPermissionResultData) {
         super(width, height, DEFAULT_FPS);
 
@@ -67,6 +74,23 @@ public class ScreenCaptureController extends AbstractVideoCaptureController {
         return "screen-capture";
     }
 
+    @Override
+    public void initializeCapturer(
+            SurfaceTextureHelper surfaceTextureHelper, Context context, CapturerObserver capturerObserver) {
+        staticContentFilter = new StaticContentFilter(capturerObserver);
+        videoCapturer.initialize(surfaceTextureHelper, context, staticContentFilter);
+    }
+
+    /**
+     * Starts or stops (with null options) dropping the frames which don't change the screen content, down to an
+     * idle frame rate.
+     */
+    public void setStaticContentDropping(@Nullable StaticContentFilter.Options options) {
+        if (staticContentFilter != null) {
+            staticContentFilter.setOptions(options);
+        }
+    }
+
     @Override
     public void dispose() {
         MediaProjectionService.abort(context);
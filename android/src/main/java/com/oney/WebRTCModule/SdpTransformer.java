@@ -0,0 +1,495 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declarative SDP transformations applied natively, so the SDP doesn't need to
+ * travel to JS and back to be rewritten. The rules are configured once per
+ * PeerConnection (the non-standard {@code sdpTransforms} configuration key):
+ *
+ * <pre>
+ * {
+ *   local: { audio: MediaRules, video: MediaRules },  // createOffer / createAnswer / implicit setLocalDescription
+ *   remote: { audio: MediaRules, video: MediaRules }  // setRemoteDescription input
+ * }
+ *
+ * MediaRules: {
+ *   codecs: ['vp9', 'h264'],   // preferred codec order, the rest keeps its order
+ *   removeCodecs: ['av1'],     // removed along with their RTX payload types
+ *   maxBitrate: 1500,          // b=AS line, in kbps
+ *   opusStereo: true,          // stereo / sprop-stereo Opus fmtp parameters
+ *   opusDtx: true              // usedtx Opus fmtp parameter
+ * }
+ * </pre>
+ *
+ * Media sections without rules are copied over as they are, only the sections
+ * that need to be rewritten are split into lines.
+ */
+class SdpTransformer {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private final Rules local;
+    private final Rules remote;
+
+    private SdpTransformer(@Nullable Rules local, @Nullable Rules remote) {
+        this.local = local;
+        this.remote = remote;
+    }
+
+    /**
+     * Creates a transformer from the given JS configuration. Returns null if no
+     * transformations are configured.
+     */
+    @Nullable
+    static SdpTransformer fromMap(@Nullable ReadableMap map) {
+        if (map == null) {
+            return null;
+        }
+
+        Rules local = Rules.fromMap(getMap(map, "local"));
+        Rules remote = Rules.fromMap(getMap(map, "remote"));
+
+        if (local == null && remote == null) {
+            return null;
+        }
+
+        return new SdpTransformer(local, remote);
+    }
+
+    /**
+     * Transforms a locally generated description (createOffer / createAnswer).
+     */
+    String transformLocal(String sdp) {
+        return transform(sdp, local);
+    }
+
+    /**
+     * Transforms a description received from the remote peer, before it's applied.
+     */
+    String transformRemote(String sdp) {
+        return transform(sdp, remote);
+    }
+
+    static String transform(String sdp, @Nullable Rules rules) {
+        if (sdp == null || rules == null) {
+            return sdp;
+        }
+
+        final String eol = sdp.contains("\r\n") ? "\r\n" : "\n";
+        final String sectionDelimiter = eol + "m=";
+
+        int sectionStart;
+        if (sdp.startsWith("m=")) {
+            sectionStart = 0;
+        } else {
+            sectionStart = sdp.indexOf(sectionDelimiter);
+            if (sectionStart < 0) {
+                return sdp;
+            }
+            sectionStart += eol.length();
+        }
+
+        // Only allocated if any of the sections needs to be rewritten.
+        StringBuilder result = null;
+        int copiedUntil = 0;
+
+        while (sectionStart >= 0) {
+            int next = sdp.indexOf(sectionDelimiter, sectionStart);
+            int sectionEnd = next < 0 ? sdp.length() : next + eol.length();
+
+            MediaRules mediaRules = rules.forSection(sdp, sectionStart);
+            if (mediaRules != null) {
+                String section = sdp.substring(sectionStart, sectionEnd);
+                String transformed = new MediaSection(section, eol).apply(mediaRules);
+
+                if (!transformed.equals(section)) {
+                    if (result == null) {
+                        result = new StringBuilder(sdp.length() + 64);
+                    }
+                    result.append(sdp, copiedUntil, sectionStart).append(transformed);
+                    copiedUntil = sectionEnd;
+                }
+            }
+
+            sectionStart = next < 0 ? -1 : sectionEnd;
+        }
+
+        if (result == null) {
+            return sdp;
+        }
+
+        result.append(sdp, copiedUntil, sdp.length());
+
+        return result.toString();
+    }
+
+    @Nullable
+    private static ReadableMap getMap(ReadableMap map, String key) {
+        return map.hasKey(key) && map.getType(key) == ReadableType.Map ? map.getMap(key) : null;
+    }
+
+    /**
+     * Normalizes codec names, accepting both "VP8" and "video/VP8".
+     */
+    private static String normalizeCodecName(String name) {
+        int slash = name.indexOf('/');
+        return (slash >= 0 ? name.substring(slash + 1) : name).toLowerCase(Locale.ROOT);
+    }
+
+    static class Rules {
+        private final MediaRules audio;
+        private final MediaRules video;
+
+        private Rules(@Nullable MediaRules audio, @Nullable MediaRules video) {
+            this.audio = audio;
+            this.video = video;
+        }
+
+        @Nullable
+        static Rules fromMap(@Nullable ReadableMap map) {
+            if (map == null) {
+                return null;
+            }
+
+            MediaRules audio = MediaRules.fromMap(getMap(map, "audio"));
+            MediaRules video = MediaRules.fromMap(getMap(map, "video"));
+
+            return audio == null && video == null ? null : new Rules(audio, video);
+        }
+
+        @Nullable
+        MediaRules forSection(String sdp, int sectionStart) {
+            if (sdp.startsWith("m=audio ", sectionStart)) {
+                return audio;
+            } else if (sdp.startsWith("m=video ", sectionStart)) {
+                return video;
+            }
+            return null;
+        }
+    }
+
+    static class MediaRules {
+        final List<String> codecOrder = new ArrayList<>();
+        final Set<String> removedCodecs = new HashSet<>();
+        int maxBitrateKbps = 0;
+        Boolean opusStereo;
+        Boolean opusDtx;
+
+        @Nullable
+        static MediaRules fromMap(@Nullable ReadableMap map) {
+            if (map == null) {
+                return null;
+            }
+
+            MediaRules rules = new MediaRules();
+
+            if (map.hasKey("codecs") && map.getType("codecs") == ReadableType.Array) {
+                ReadableArray codecs = map.getArray("codecs");
+                for (int i = 0; i < codecs.size(); i++) {
+                    rules.codecOrder.add(normalizeCodecName(codecs.getString(i)));
+                }
+            }
+            if (map.hasKey("removeCodecs") && map.getType("removeCodecs") == ReadableType.Array) {
+                ReadableArray codecs = map.getArray("removeCodecs");
+                for (int i = 0; i < codecs.size(); i++) {
+                    rules.removedCodecs.add(normalizeCodecName(codecs.getString(i)));
+                }
+            }
+            if (map.hasKey("maxBitrate") && map.getType("maxBitrate") == ReadableType.Number) {
+                rules.maxBitrateKbps = map.getInt("maxBitrate");
+            }
+            if (map.hasKey("opusStereo") && map.getType("opusStereo") == ReadableType.Boolean) {
+                rules.opusStereo = map.getBoolean("opusStereo");
+            }
+            if (map.hasKey("opusDtx") && map.getType("opusDtx") == ReadableType.Boolean) {
+                rules.opusDtx = map.getBoolean("opusDtx");
+            }
+
+            return rules.isEmpty() ? null : rules;
+        }
+
+        boolean isEmpty() {
+            return codecOrder.isEmpty() && removedCodecs.isEmpty() && maxBitrateKbps <= 0 && opusStereo == null
+                    && opusDtx == null;
+        }
+    }
+
+    /**
+     * A single media section ("m=" line and everything up to the next one), split
+     * into lines. Only the parts needed by the rules are parsed.
+     */
+    private static class MediaSection {
+        private final String eol;
+        private final boolean trailingEol;
+        private final List<String> lines = new ArrayList<>();
+        private final List<String> payloadTypes = new ArrayList<>();
+        private final String mLinePrefix;
+
+        // Payload type -> lowercase codec name.
+        private final Map<String, String> codecNames = new HashMap<>();
+        // RTX payload type -> associated payload type.
+        private final Map<String, String> rtxAssociations = new HashMap<>();
+
+        MediaSection(String section, String eol) {
+            this.eol = eol;
+            this.trailingEol = section.endsWith(eol);
+
+            int start = 0;
+            while (start < section.length()) {
+                int end = section.indexOf(eol, start);
+                if (end < 0) {
+                    end = section.length();
+                }
+                lines.add(section.substring(start, end));
+                start = end + eol.length();
+            }
+
+            // m=<media> <port> <proto> <fmt> ...
+            String[] mLine = lines.get(0).split(" ");
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < mLine.length; i++) {
+                if (i < 3) {
+                    prefix.append(mLine[i]).append(' ');
+                } else {
+                    payloadTypes.add(mLine[i]);
+                }
+            }
+            mLinePrefix = prefix.toString();
+
+            for (String line : lines) {
+                if (line.startsWith("a=rtpmap:")) {
+                    int space = line.indexOf(' ');
+                    if (space < 0) {
+                        continue;
+                    }
+                    int slash = line.indexOf('/', space);
+                    String name = line.substring(space + 1, slash < 0 ? line.length() : slash);
+                    codecNames.put(line.substring("a=rtpmap:".length(), space), name.toLowerCase(Locale.ROOT));
+                } else if (line.startsWith("a=fmtp:")) {
+                    int space = line.indexOf(' ');
+                    if (space < 0) {
+                        continue;
+                    }
+                    String apt = parseFmtp(line.substring(space + 1)).get("apt");
+                    if (apt != null) {
+                        rtxAssociations.put(line.substring("a=fmtp:".length(), space), apt);
+                    }
+                }
+            }
+        }
+
+        String apply(MediaRules rules) {
+            Set<String> removed = findRemovedPayloadTypes(rules.removedCodecs);
+            List<String> ordered = orderPayloadTypes(rules.codecOrder, removed);
+
+            List<String> result = new ArrayList<>(lines.size() + 2);
+            result.add(mLinePrefix + join(ordered, " "));
+
+            boolean bitrateAdded = false;
+            for (int i = 1; i < lines.size(); i++) {
+                String line = lines.get(i);
+
+                if (!removed.isEmpty() && removed.contains(payloadTypeOf(line))) {
+                    continue;
+                }
+
+                if (rules.maxBitrateKbps > 0) {
+                    if (line.startsWith("b=AS:")) {
+                        continue;
+                    }
+                    // The bandwidth line goes after the connection line, if any.
+                    if (!bitrateAdded && !line.startsWith("i=") && !line.startsWith("c=")) {
+                        result.add("b=AS:" + rules.maxBitrateKbps);
+                        bitrateAdded = true;
+                    }
+                }
+
+                result.add(line);
+            }
+
+            if (rules.maxBitrateKbps > 0 && !bitrateAdded) {
+                result.add("b=AS:" + rules.maxBitrateKbps);
+            }
+
+            if (rules.opusStereo != null || rules.opusDtx != null) {
+                applyOpusParameters(result, rules, removed);
+            }
+
+            return join(result, eol) + (trailingEol ? eol : "");
+        }
+
+        private Set<String> findRemovedPayloadTypes(Set<String> removedCodecs) {
+            Set<String> removed = new HashSet<>();
+            if (removedCodecs.isEmpty()) {
+                return removed;
+            }
+
+            for (String pt : payloadTypes) {
+                if (removedCodecs.contains(codecNames.get(pt))) {
+                    removed.add(pt);
+                }
+            }
+            for (Map.Entry<String, String> entry : rtxAssociations.entrySet()) {
+                if (removed.contains(entry.getValue())) {
+                    removed.add(entry.getKey());
+                }
+            }
+
+            // Never remove every media codec, that would leave the section unusable.
+            boolean hasMediaCodec = false;
+            for (String pt : payloadTypes) {
+                if (!removed.contains(pt) && !rtxAssociations.containsKey(pt) && !isAuxiliaryCodec(pt)) {
+                    hasMediaCodec = true;
+                    break;
+                }
+            }
+            if (!hasMediaCodec) {
+                Log.w(TAG, "SdpTransformer: refusing to remove all codecs of " + mLinePrefix.trim());
+                removed.clear();
+            }
+
+            return removed;
+        }
+
+        private boolean isAuxiliaryCodec(String pt) {
+            String name = codecNames.get(pt);
+            return "red".equals(name) || "ulpfec".equals(name) || "flexfec-03".equals(name) || "cn".equals(name)
+                    || "telephone-event".equals(name);
+        }
+
+        private List<String> orderPayloadTypes(List<String> codecOrder, Set<String> removed) {
+            List<String> ordered = new ArrayList<>(payloadTypes.size());
+
+            for (String name : codecOrder) {
+                for (String pt : payloadTypes) {
+                    if (!removed.contains(pt) && !ordered.contains(pt) && name.equals(codecNames.get(pt))) {
+                        ordered.add(pt);
+                        // Keep the RTX payload type next to its media codec.
+                        for (Map.Entry<String, String> entry : rtxAssociations.entrySet()) {
+                            if (pt.equals(entry.getValue()) && !removed.contains(entry.getKey())
+                                    && !ordered.contains(entry.getKey())) {
+                                ordered.add(entry.getKey());
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (String pt : payloadTypes) {
+                if (!removed.contains(pt) && !ordered.contains(pt)) {
+                    ordered.add(pt);
+                }
+            }
+
+            return ordered;
+        }
+
+        private void applyOpusParameters(List<String> result, MediaRules rules, Set<String> removed) {
+            for (Map.Entry<String, String> codec : codecNames.entrySet()) {
+                String pt = codec.getKey();
+                if (!"opus".equals(codec.getValue()) || removed.contains(pt)) {
+                    continue;
+                }
+
+                String fmtpPrefix = "a=fmtp:" + pt + " ";
+                int fmtpIndex = -1;
+                int rtpmapIndex = -1;
+                for (int i = 0; i < result.size(); i++) {
+                    String line = result.get(i);
+                    if (line.startsWith(fmtpPrefix)) {
+                        fmtpIndex = i;
+                    } else if (line.startsWith("a=rtpmap:" + pt + " ")) {
+                        rtpmapIndex = i;
+                    }
+                }
+
+                Map<String, String> params = fmtpIndex >= 0
+                        ? parseFmtp(result.get(fmtpIndex).substring(fmtpPrefix.length()))
+                        : new LinkedHashMap<>();
+                if (rules.opusStereo != null) {
+                    String value = rules.opusStereo ? "1" : "0";
+                    params.put("stereo", value);
+                    params.put("sprop-stereo", value);
+                }
+                if (rules.opusDtx != null) {
+                    params.put("usedtx", rules.opusDtx ? "1" : "0");
+                }
+
+                List<String> pairs = new ArrayList<>(params.size());
+                for (Map.Entry<String, String> param : params.entrySet()) {
+                    pairs.add(param.getValue() == null ? param.getKey() : param.getKey() + "=" + param.getValue());
+                }
+                String fmtp = fmtpPrefix + join(pairs, ";");
+
+                if (fmtpIndex >= 0) {
+                    result.set(fmtpIndex, fmtp);
+                } else if (rtpmapIndex >= 0) {
+                    result.add(rtpmapIndex + 1, fmtp);
+                }
+            }
+        }
+
+        /**
+         * Returns the payload type a=rtpmap, a=fmtp and a=rtcp-fb lines refer to, or null.
+         */
+        @Nullable
+        private static String payloadTypeOf(String line) {
+            String prefix;
+            if (line.startsWith("a=rtpmap:")) {
+                prefix = "a=rtpmap:";
+            } else if (line.startsWith("a=fmtp:")) {
+                prefix = "a=fmtp:";
+            } else if (line.startsWith("a=rtcp-fb:")) {
+                prefix = "a=rtcp-fb:";
+            } else {
+                return null;
+            }
+
+            int space = line.indexOf(' ', prefix.length());
+            return line.substring(prefix.length(), space < 0 ? line.length() : space);
+        }
+
+        private static Map<String, String> parseFmtp(String fmtp) {
+            Map<String, String> params = new LinkedHashMap<>();
+            for (String pair : fmtp.split(";")) {
+                String trimmed = pair.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int eq = trimmed.indexOf('=');
+                if (eq < 0) {
+                    params.put(trimmed, null);
+                } else {
+                    params.put(trimmed.substring(0, eq).trim(), trimmed.substring(eq + 1).trim());
+                }
+            }
+            return params;
+        }
+
+        private static String join(List<String> parts, String separator) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    sb.append(separator);
+                }
+                sb.append(parts.get(i));
+            }
+            return sb.toString();
+        }
+    }
+}
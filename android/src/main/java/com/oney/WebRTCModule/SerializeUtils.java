@@ -1,5 +1,7 @@
 package com.oney.WebRTCModule;
 
+import androidx.annotation.Nullable;
+
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
@@ -7,12 +9,14 @@ import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.oney.WebRTCModule.webrtcutils.CodecTelemetry;
 
 import org.webrtc.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -159,6 +163,9 @@ public class SerializeUtils {
             if (encoding.scaleResolutionDownBy != null) {
                 encodingMap.putDouble("scaleResolutionDownBy", encoding.scaleResolutionDownBy);
             }
+            if (encoding.scalabilityMode != null) {
+                encodingMap.putString("scalabilityMode", encoding.scalabilityMode);
+            }
             encodings.pushMap(encodingMap);
         });
 
@@ -191,6 +198,41 @@ public class SerializeUtils {
         return result;
     }
 
+    /**
+     * Builds a compact description of a transceiver's negotiated state, so changes can
+     * be detected without serializing it for the bridge. The (ever changing)
+     * transaction ID is not taken into account.
+     */
+    public static String transceiverStateFingerprint(@Nullable RtpTransceiver.RtpTransceiverDirection currentDirection,
+            @Nullable String mid, boolean isStopped, RtpParameters senderRtpParameters,
+            RtpParameters receiverRtpParameters) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(currentDirection).append('|').append(mid).append('|').append(isStopped);
+        appendRtpParametersFingerprint(sb.append('|'), senderRtpParameters);
+        appendRtpParametersFingerprint(sb.append('|'), receiverRtpParameters);
+        return sb.toString();
+    }
+
+    private static void appendRtpParametersFingerprint(StringBuilder sb, RtpParameters params) {
+        sb.append(params.getRtcp().getCname()).append(',').append(params.getRtcp().getReducedSize());
+        sb.append(',').append(params.degradationPreference);
+        for (RtpParameters.HeaderExtension extension : params.getHeaderExtensions()) {
+            sb.append(";h:").append(extension.getId()).append(',').append(extension.getUri());
+            sb.append(',').append(extension.getEncrypted());
+        }
+        for (RtpParameters.Encoding encoding : params.encodings) {
+            sb.append(";e:").append(encoding.rid).append(',').append(encoding.active);
+            sb.append(',').append(encoding.maxBitrateBps).append(',').append(encoding.minBitrateBps);
+            sb.append(',').append(encoding.maxFramerate).append(',').append(encoding.scaleResolutionDownBy);
+            sb.append(',').append(encoding.scalabilityMode);
+        }
+        for (RtpParameters.Codec codec : params.codecs) {
+            sb.append(";c:").append(codec.payloadType).append(',').append(codec.name);
+            sb.append(',').append(codec.clockRate).append(',').append(codec.numChannels);
+            sb.append(',').append(codec.parameters);
+        }
+    }
+
     public static ReadableMap serializeRtpCapabilities(RtpCapabilities capabilities) {
         WritableMap result = Arguments.createMap();
         WritableArray codecs = Arguments.createArray();
@@ -216,6 +258,50 @@ public class SerializeUtils {
         return codecMap;
     }
 
+    public static ReadableMap serializeCodecTelemetry(CodecTelemetry telemetry) {
+        WritableArray encoders = Arguments.createArray();
+        WritableArray decoders = Arguments.createArray();
+
+        for (CodecTelemetry.Stats stats : telemetry.getAll()) {
+            WritableMap latency = Arguments.createMap();
+            latency.putDouble("count", stats.getLatencyCount());
+            latency.putDouble("mean", stats.getLatencyMeanMs());
+            latency.putDouble("max", stats.getLatencyMaxMs());
+            WritableArray buckets = Arguments.createArray();
+            long[] counts = stats.getLatencyBuckets();
+            for (int i = 0; i < counts.length; i++) {
+                WritableMap bucket = Arguments.createMap();
+                if (i < CodecTelemetry.LATENCY_BUCKETS_MS.length) {
+                    bucket.putInt("le", CodecTelemetry.LATENCY_BUCKETS_MS[i]);
+                } else {
+                    bucket.putNull("le");
+                }
+                bucket.putDouble("count", counts[i]);
+                buckets.pushMap(bucket);
+            }
+            latency.putArray("buckets", buckets);
+
+            WritableMap statsMap = Arguments.createMap();
+            statsMap.putString("codec", stats.codec);
+            statsMap.putString("implementationName", stats.implementationName);
+            statsMap.putDouble("frames", stats.getFrames());
+            statsMap.putDouble("keyFrames", stats.getKeyFrames());
+            statsMap.putDouble("bytes", stats.getBytes());
+            statsMap.putMap("latency", latency);
+            double bitrateAccuracy = stats.getBitrateAccuracy();
+            if (bitrateAccuracy >= 0) {
+                statsMap.putDouble("bitrateAccuracy", bitrateAccuracy);
+            }
+
+            (stats.encoder ? encoders : decoders).pushMap(statsMap);
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putArray("encoders", encoders);
+        result.putArray("decoders", decoders);
+        return result;
+    }
+
     // For serializing sdpFmptLine.
     public static String serializeSdpParameters(Map<String, String> parameters) {
         return parameters.keySet()
@@ -246,6 +332,8 @@ public class SerializeUtils {
             Double scaleResolutionDownBy = encodingUpdate.hasKey("scaleResolutionDownBy")
                     ? encodingUpdate.getDouble("scaleResolutionDownBy")
                     : null;
+            String scalabilityMode =
+                    encodingUpdate.hasKey("scalabilityMode") ? encodingUpdate.getString("scalabilityMode") : null;
 
             encoding.active = encodingUpdate.getBoolean("active");
             encoding.rid = encodingUpdate.getString("rid");
@@ -253,16 +341,51 @@ public class SerializeUtils {
             encoding.minBitrateBps = minBitrate;
             encoding.maxFramerate = maxFramerate;
             encoding.scaleResolutionDownBy = scaleResolutionDownBy;
+            encoding.scalabilityMode = scalabilityMode;
         }
 
         if (updateParams.hasKey("degradationPreference")) {
-            rtpParams.degradationPreference =
-                    RtpParameters.DegradationPreference.valueOf(updateParams.getString("degradationPreference"));
+            rtpParams.degradationPreference = updateParams.isNull("degradationPreference")
+                    ? null
+                    : parseDegradationPreference(updateParams.getString("degradationPreference"));
         }
 
         return rtpParams;
     }
 
+    /**
+     * Parses a degradation preference, either in the native form (MAINTAIN_FRAMERATE) or in the web form
+     * (maintain-framerate).
+     */
+    public static RtpParameters.DegradationPreference parseDegradationPreference(String value) {
+        String name = value.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (RtpParameters.DegradationPreference preference : RtpParameters.DegradationPreference.values()) {
+            if (preference.name().equals(name)) {
+                return preference;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid degradationPreference: " + value);
+    }
+
+    /**
+     * Parses an RTCIceCandidateInit-like map. Returns null if neither sdpMid
+     * nor sdpMLineIndex are present.
+     */
+    public static IceCandidate parseIceCandidate(ReadableMap candidateMap) {
+        if (!candidateMap.hasKey("sdpMid") && !candidateMap.hasKey("sdpMLineIndex")) {
+            return null;
+        }
+
+        return new IceCandidate(candidateMap.hasKey("sdpMid") && !candidateMap.isNull("sdpMid")
+                        ? candidateMap.getString("sdpMid")
+                        : "",
+                candidateMap.hasKey("sdpMLineIndex") && !candidateMap.isNull("sdpMLineIndex")
+                        ? candidateMap.getInt("sdpMLineIndex")
+                        : 0,
+                candidateMap.getString("candidate"));
+    }
+
     public static MediaStreamTrack.MediaType parseMediaType(String type) {
         switch (type) {
             case "audio":
@@ -308,6 +431,9 @@ public class SerializeUtils {
         if (params.hasKey("scaleResolutionDownBy")) {
             encoding.scaleResolutionDownBy = params.getDouble("scaleResolutionDownBy");
         }
+        if (params.hasKey("scalabilityMode")) {
+            encoding.scalabilityMode = params.getString("scalabilityMode");
+        }
 
         return encoding;
     }
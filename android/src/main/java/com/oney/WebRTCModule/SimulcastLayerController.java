@@ -0,0 +1,375 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Adapts the encodings of a sender to the available outgoing bandwidth and to CPU limitations, without a
+ * round trip through JS. The sender's stats are polled periodically, and the controller moves along a ladder
+ * of levels: level N has the N highest quality layers paused, and the last level (if enabled) additionally
+ * halves the resolution and bitrate of the remaining layer. Moving down needs a few bad polls in a row,
+ * moving back up needs more good ones, with some margin, so the configuration doesn't flap.
+ *
+ * The app's own configuration (set through senderSetParameters) is the baseline: layers the app paused stay
+ * paused. Layers without a maxBitrate are accounted for with the bitrate they were last measured at.
+ *
+ * Must only be used in the executor.
+ */
+class SimulcastLayerController {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final Timer timer = new Timer("SimulcastLayerController", true);
+
+    static class Options {
+        long intervalMs = 1000;
+        int downgradePolls = 2;
+        int upgradePolls = 5;
+        // Upgrading after a CPU limitation waits this many times longer.
+        int cpuUpgradeFactor = 3;
+        double upgradeMargin = 1.25;
+        boolean scaleLowestLayer = true;
+
+        static Options fromReadableMap(@Nullable ReadableMap map) {
+            Options options = new Options();
+            if (map == null) {
+                return options;
+            }
+
+            if (map.hasKey("intervalMs")) {
+                options.intervalMs = Math.max(250, (long) map.getDouble("intervalMs"));
+            }
+            if (map.hasKey("downgradePolls")) {
+                options.downgradePolls = Math.max(1, map.getInt("downgradePolls"));
+            }
+            if (map.hasKey("upgradePolls")) {
+                options.upgradePolls = Math.max(1, map.getInt("upgradePolls"));
+            }
+            if (map.hasKey("upgradeMargin")) {
+                options.upgradeMargin = Math.max(1, map.getDouble("upgradeMargin"));
+            }
+            if (map.hasKey("scaleLowestLayer")) {
+                options.scaleLowestLayer = map.getBoolean("scaleLowestLayer");
+            }
+
+            return options;
+        }
+    }
+
+    interface Listener {
+        /**
+         * @param reason "bandwidth", "cpu" or "recovered".
+         * @param availableOutgoingBitrate in bps, NaN if unknown.
+         */
+        void onLayersChanged(RtpSender sender, String reason, int level, double availableOutgoingBitrate);
+    }
+
+    /**
+     * An encoding as configured by the app.
+     */
+    private static class Layer {
+        final int index;
+        @Nullable
+        final String rid;
+        final boolean active;
+        @Nullable
+        final Integer maxBitrateBps;
+        @Nullable
+        final Double scaleResolutionDownBy;
+
+        double measuredBps;
+        long lastBytesSent = -1;
+        long lastTimestampUs;
+
+        Layer(int index, RtpParameters.Encoding encoding) {
+            this.index = index;
+            this.rid = encoding.rid;
+            this.active = encoding.active;
+            this.maxBitrateBps = encoding.maxBitrateBps;
+            this.scaleResolutionDownBy = encoding.scaleResolutionDownBy;
+        }
+
+        double scale() {
+            return scaleResolutionDownBy != null ? scaleResolutionDownBy : 1;
+        }
+
+        double budget() {
+            return maxBitrateBps != null ? maxBitrateBps : measuredBps;
+        }
+    }
+
+    private final PeerConnection peerConnection;
+    private final RtpSender sender;
+    private final Options options;
+    private final Listener listener;
+    private final TimerTask pollTask;
+
+    private final List<Layer> layers = new ArrayList<>();
+    // The layers the app left active, from the lowest to the highest quality.
+    private final List<Layer> ladder = new ArrayList<>();
+    // What was last applied to each encoding, by index, to tell it apart from the app's own changes.
+    private final Map<Integer, RtpParameters.Encoding> applied = new HashMap<>();
+
+    private int level;
+    private int downgradeCount;
+    private int upgradeCount;
+    private boolean cpuLimitedDowngrade;
+    private boolean disposed;
+
+    SimulcastLayerController(PeerConnection peerConnection, RtpSender sender, Options options, Listener listener) {
+        this.peerConnection = peerConnection;
+        this.sender = sender;
+        this.options = options;
+        this.listener = listener;
+
+        setConfiguredParameters(sender.getParameters());
+
+        pollTask = new TimerTask() {
+            @Override
+            public void run() {
+                ThreadUtils.runOnExecutor(SimulcastLayerController.this::poll);
+            }
+        };
+        timer.schedule(pollTask, options.intervalMs, options.intervalMs);
+    }
+
+    void dispose() {
+        disposed = true;
+        pollTask.cancel();
+    }
+
+    /**
+     * Takes the given parameters as the app's configuration and applies the current level on top of them.
+     * The parameters are modified in place, they still need to be set on the sender.
+     */
+    void setConfiguredParameters(RtpParameters parameters) {
+        List<Layer> previous = new ArrayList<>(layers);
+        layers.clear();
+        ladder.clear();
+
+        for (int i = 0; i < parameters.encodings.size(); i++) {
+            RtpParameters.Encoding encoding = parameters.encodings.get(i);
+            RtpParameters.Encoding last = applied.get(i);
+            Layer layer = i < previous.size() ? previous.get(i) : null;
+            if (last != null && layer != null) {
+                // Values which are still the ones set by the controller are not the app's doing.
+                if (encoding.active == last.active) {
+                    encoding.active = layer.active;
+                }
+                if (Objects.equals(encoding.maxBitrateBps, last.maxBitrateBps)) {
+                    encoding.maxBitrateBps = layer.maxBitrateBps;
+                }
+                if (Objects.equals(encoding.scaleResolutionDownBy, last.scaleResolutionDownBy)) {
+                    encoding.scaleResolutionDownBy = layer.scaleResolutionDownBy;
+                }
+            }
+
+            Layer updated = new Layer(i, encoding);
+            if (layer != null) {
+                updated.measuredBps = layer.measuredBps;
+                updated.lastBytesSent = layer.lastBytesSent;
+                updated.lastTimestampUs = layer.lastTimestampUs;
+            }
+            layers.add(updated);
+            if (updated.active) {
+                ladder.add(updated);
+            }
+        }
+
+        // Lowest quality first.
+        ladder.sort((a, b) -> {
+            int byScale = Double.compare(b.scale(), a.scale());
+            return byScale != 0 ? byScale : Double.compare(a.budget(), b.budget());
+        });
+
+        level = Math.min(level, maxLevel());
+        applyLevel(parameters);
+    }
+
+    private int maxLevel() {
+        if (ladder.isEmpty()) {
+            return 0;
+        }
+
+        return ladder.size() - 1 + (options.scaleLowestLayer ? 1 : 0);
+    }
+
+    /**
+     * The bitrate needed by the layers enabled at the given level.
+     */
+    private double budget(int level) {
+        double budget = 0;
+        int enabled = Math.max(1, ladder.size() - level);
+        for (int i = 0; i < enabled && i < ladder.size(); i++) {
+            budget += ladder.get(i).budget();
+        }
+        if (level >= ladder.size()) {
+            budget /= 2;
+        }
+
+        return budget;
+    }
+
+    private void applyLevel(RtpParameters parameters) {
+        int enabled = Math.max(1, ladder.size() - level);
+        boolean scaled = level >= ladder.size();
+
+        applied.clear();
+        for (Layer layer : layers) {
+            RtpParameters.Encoding encoding = parameters.encodings.get(layer.index);
+            int position = ladder.indexOf(layer);
+            encoding.active = layer.active && position < enabled;
+            encoding.maxBitrateBps = layer.maxBitrateBps;
+            encoding.scaleResolutionDownBy = layer.scaleResolutionDownBy;
+            if (scaled && position == 0) {
+                if (layer.maxBitrateBps != null) {
+                    encoding.maxBitrateBps = layer.maxBitrateBps / 2;
+                }
+                encoding.scaleResolutionDownBy = layer.scale() * 2;
+            }
+
+            RtpParameters.Encoding last = new RtpParameters.Encoding(layer.rid, encoding.active, null);
+            last.maxBitrateBps = encoding.maxBitrateBps;
+            last.scaleResolutionDownBy = encoding.scaleResolutionDownBy;
+            applied.put(layer.index, last);
+        }
+    }
+
+    private void poll() {
+        if (disposed) {
+            return;
+        }
+
+        peerConnection.getStats(sender, report -> ThreadUtils.runOnExecutor(() -> {
+            if (!disposed) {
+                evaluate(report);
+            }
+        }));
+    }
+
+    private void evaluate(RTCStatsReport report) {
+        double available = Double.NaN;
+        String topLayerLimitation = null;
+        Layer topLayer = ladder.isEmpty() ? null : ladder.get(Math.max(0, ladder.size() - 1 - level));
+
+        for (RTCStats stats : report.getStatsMap().values()) {
+            Map<String, Object> members = stats.getMembers();
+            if ("candidate-pair".equals(stats.getType())) {
+                Object bitrate = members.get("availableOutgoingBitrate");
+                if (bitrate instanceof Number && Boolean.TRUE.equals(members.get("nominated"))) {
+                    available = ((Number) bitrate).doubleValue();
+                }
+            } else if ("outbound-rtp".equals(stats.getType())) {
+                Layer layer = findLayer((String) members.get("rid"));
+                if (layer == null) {
+                    continue;
+                }
+
+                Object bytesSent = members.get("bytesSent");
+                if (bytesSent instanceof Number) {
+                    long bytes = ((Number) bytesSent).longValue();
+                    long timestampUs = (long) stats.getTimestampUs();
+                    if (layer.lastBytesSent >= 0 && timestampUs > layer.lastTimestampUs
+                            && bytes >= layer.lastBytesSent) {
+                        double bps = (bytes - layer.lastBytesSent) * 8 * 1e6 / (timestampUs - layer.lastTimestampUs);
+                        // Paused layers send nothing, keep what they used when they were active.
+                        if (bps > 0) {
+                            layer.measuredBps = bps;
+                        }
+                    }
+                    layer.lastBytesSent = bytes;
+                    layer.lastTimestampUs = timestampUs;
+                }
+                if (layer == topLayer) {
+                    topLayerLimitation = (String) members.get("qualityLimitationReason");
+                }
+            }
+        }
+
+        boolean cpuLimited = "cpu".equals(topLayerLimitation);
+        if (Double.isNaN(available) && !cpuLimited) {
+            downgradeCount = 0;
+            upgradeCount = 0;
+            return;
+        }
+
+        boolean bandwidthLimited = !Double.isNaN(available) && available < budget(level);
+        if (level < maxLevel() && (cpuLimited || bandwidthLimited)) {
+            upgradeCount = 0;
+            if (++downgradeCount >= options.downgradePolls) {
+                downgradeCount = 0;
+                cpuLimitedDowngrade = cpuLimited;
+                setLevel(level + 1, cpuLimited ? "cpu" : "bandwidth", available);
+            }
+            return;
+        }
+        downgradeCount = 0;
+
+        boolean canUpgrade = level > 0 && !cpuLimited && !Double.isNaN(available)
+                && available >= budget(level - 1) * options.upgradeMargin;
+        if (!canUpgrade) {
+            upgradeCount = 0;
+            return;
+        }
+
+        int needed = options.upgradePolls * (cpuLimitedDowngrade ? options.cpuUpgradeFactor : 1);
+        if (++upgradeCount >= needed) {
+            upgradeCount = 0;
+            cpuLimitedDowngrade = false;
+            setLevel(level - 1, "recovered", available);
+        }
+    }
+
+    @Nullable
+    private Layer findLayer(@Nullable String rid) {
+        if (rid == null || rid.isEmpty()) {
+            return layers.size() == 1 ? layers.get(0) : null;
+        }
+
+        for (Layer layer : layers) {
+            if (rid.equals(layer.rid)) {
+                return layer;
+            }
+        }
+
+        return null;
+    }
+
+    private void setLevel(int newLevel, String reason, double available) {
+        RtpParameters parameters = sender.getParameters();
+        if (parameters.encodings.size() != layers.size()) {
+            Log.w(TAG, "SimulcastLayerController: encodings changed, not adapting");
+            return;
+        }
+
+        int previousLevel = level;
+        level = newLevel;
+        applyLevel(parameters);
+        if (!sender.setParameters(parameters)) {
+            Log.w(TAG, "SimulcastLayerController: failed to set parameters for level " + newLevel);
+            level = previousLevel;
+            applyLevel(sender.getParameters());
+            return;
+        }
+
+        Log.d(TAG, "SimulcastLayerController: level " + newLevel + " (" + reason + "), available " + available);
+
+        listener.onLayersChanged(sender, reason, newLevel, available);
+    }
+}
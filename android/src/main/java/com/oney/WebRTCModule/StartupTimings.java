@@ -0,0 +1,100 @@
+package com.oney.WebRTCModule;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of the module initialization took. Phases are measured with
+ * {@link #begin(String)} / {@link #end()} and can't be nested. Optionally each phase is also emitted as an
+ * Android trace section, so it shows up in system traces.
+ */
+class StartupTimings {
+    private static final String TRACE_PREFIX = "WebRTCModule.";
+
+    private final boolean traceEnabled;
+    private final long createdAt;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private String currentPhase;
+    private long currentPhaseStart;
+    private long finishedAt;
+
+    StartupTimings(boolean traceEnabled) {
+        this.traceEnabled = traceEnabled;
+        this.createdAt = SystemClock.elapsedRealtime();
+    }
+
+    synchronized void begin(String phase) {
+        currentPhase = phase;
+        currentPhaseStart = SystemClock.elapsedRealtime();
+
+        if (traceEnabled) {
+            Trace.beginSection(TRACE_PREFIX + phase);
+        }
+    }
+
+    synchronized void end() {
+        if (currentPhase == null) {
+            return;
+        }
+
+        if (traceEnabled) {
+            Trace.endSection();
+        }
+
+        phases.put(currentPhase, SystemClock.elapsedRealtime() - currentPhaseStart);
+        currentPhase = null;
+    }
+
+    /**
+     * Marks the initialization as complete.
+     */
+    synchronized void finish() {
+        end();
+        finishedAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Returns the phase durations in ms, in the order they ran, together with the time it took from module
+     * creation until the initialization completed, which includes waiting to be scheduled.
+     */
+    synchronized WritableMap toWritableMap() {
+        WritableMap phasesMap = Arguments.createMap();
+        long measured = 0;
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            phasesMap.putDouble(entry.getKey(), entry.getValue());
+            measured += entry.getValue();
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putMap("phases", phasesMap);
+        result.putDouble("measured", measured);
+        if (finishedAt > 0) {
+            result.putDouble("total", finishedAt - createdAt);
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("ms");
+        }
+        if (finishedAt > 0) {
+            sb.append(", total: ").append(finishedAt - createdAt).append("ms");
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops the screen capture frames which don't change anything, e.g. while a slide is presented, down to an idle
+ * frame rate. Each frame is downscaled (on the GPU for texture frames) to a small luma thumbnail, which is
+ * compared to the one of the previous frame. After a change frames keep flowing at the capture rate for a short
+ * while, so the encoder can refine the new content, then only the idle frame rate is kept: it also refreshes
+ * changes too small to show in the thumbnail (e.g. a blinking caret).
+ *
+ * Frames are delivered on the capture thread, options are set on the executor.
+ */
+class StaticContentFilter implements CapturerObserver {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final int THUMBNAIL_WIDTH = 96;
+    // The difference in luma under which thumbnail pixels are considered unchanged, for scaling noise.
+    private static final int THRESHOLD = 4;
+
+    static class Options {
+        double idleFrameRate = 1;
+        long settleMs = 1000;
+
+        static Options fromReadableMap(@Nullable ReadableMap map) {
+            Options options = new Options();
+            if (map == null) {
+                return options;
+            }
+
+            if (map.hasKey("idleFrameRate")) {
+                options.idleFrameRate = Math.max(0.1, map.getDouble("idleFrameRate"));
+            }
+            if (map.hasKey("settleMs")) {
+                options.settleMs = Math.max(0, (long) map.getDouble("settleMs"));
+            }
+
+            return options;
+        }
+    }
+
+    private final CapturerObserver sourceObserver;
+
+    @Nullable
+    private volatile Options options;
+
+    // Accessed on the capture thread only.
+    @Nullable
+    private byte[] thumbnail;
+    private int thumbnailHeight;
+    private long lastChangeNs;
+    private long lastForwardNs;
+    private long droppedFrames;
+
+    StaticContentFilter(CapturerObserver sourceObserver) {
+        this.sourceObserver = sourceObserver;
+    }
+
+    /**
+     * Starts or stops (with null options) dropping unchanged frames.
+     */
+    void setOptions(@Nullable Options options) {
+        this.options = options;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        sourceObserver.onCapturerStarted(success);
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        sourceObserver.onCapturerStopped();
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        Options options = this.options;
+        if (options == null) {
+            thumbnail = null;
+            sourceObserver.onFrameCaptured(frame);
+            return;
+        }
+
+        long timestampNs = frame.getTimestampNs();
+        if (updateThumbnail(frame)) {
+            lastChangeNs = timestampNs;
+        } else if (timestampNs - lastChangeNs >= TimeUnit.MILLISECONDS.toNanos(options.settleMs)
+                && timestampNs - lastForwardNs < (long) (TimeUnit.SECONDS.toNanos(1) / options.idleFrameRate)) {
+            if (++droppedFrames % 300 == 0) {
+                Log.d(TAG, "Dropped " + droppedFrames + " unchanged screen capture frames");
+            }
+            return;
+        }
+
+        lastForwardNs = timestampNs;
+        sourceObserver.onFrameCaptured(frame);
+    }
+
+    /**
+     * Computes the thumbnail of the frame and returns whether it differs from the previous one.
+     */
+    private boolean updateThumbnail(VideoFrame frame) {
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        int width = THUMBNAIL_WIDTH;
+        int height = Math.max(2, Math.round(THUMBNAIL_WIDTH * buffer.getHeight() / (float) buffer.getWidth()) & ~1);
+
+        VideoFrame.Buffer scaled = buffer.cropAndScale(0, 0, buffer.getWidth(), buffer.getHeight(), width, height);
+        VideoFrame.I420Buffer i420 = scaled.toI420();
+        scaled.release();
+        if (i420 == null) {
+            return true;
+        }
+
+        byte[] previous = thumbnail;
+        boolean changed = previous == null || thumbnailHeight != height;
+        if (changed) {
+            thumbnail = new byte[width * height];
+            thumbnailHeight = height;
+        }
+
+        ByteBuffer dataY = i420.getDataY();
+        int strideY = i420.getStrideY();
+        byte[] current = thumbnail;
+        for (int y = 0; y < height; y++) {
+            int rowOffset = y * width;
+            for (int x = 0; x < width; x++) {
+                byte value = dataY.get(y * strideY + x);
+                if (!changed && Math.abs((value & 0xFF) - (current[rowOffset + x] & 0xFF)) > THRESHOLD) {
+                    changed = true;
+                }
+                current[rowOffset + x] = value;
+            }
+        }
+        i420.release();
+
+        return changed;
+    }
+}
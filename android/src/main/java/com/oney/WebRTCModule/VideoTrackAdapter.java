@@ -26,7 +26,8 @@ public class VideoTrackAdapter {
 
     private Timer timer = new Timer("VideoTrackMutedTimer");
 
-    private final int peerConnectionId;
+    // Set in the executor when a pooled observer is claimed, read on the timer thread.
+    private volatile int peerConnectionId;
 
     private final WebRTCModule webRTCModule;
 
@@ -35,6 +36,10 @@ public class VideoTrackAdapter {
         this.webRTCModule = webRTCModule;
     }
 
+    void setPeerConnectionId(int peerConnectionId) {
+        this.peerConnectionId = peerConnectionId;
+    }
+
     public void addAdapter(VideoTrack videoTrack) {
         String trackId = videoTrack.id();
         if (muteImplMap.containsKey(trackId)) {
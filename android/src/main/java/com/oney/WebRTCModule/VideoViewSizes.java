@@ -0,0 +1,119 @@
+package com.oney.WebRTCModule;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the laid out size of the {@link WebRTCView}s rendering each video track and reports, per
+ * track, the largest width and height it's rendered at, so the app can request a matching resolution (e.g.
+ * a lower simulcast layer for thumbnails) instead of decoding video only to downscale it. A track which is
+ * not rendered anymore is reported with a size of 0x0. Reports are debounced, views are laid out several
+ * times in a row when the UI changes.
+ *
+ * Must only be used on the main thread.
+ */
+class VideoViewSizes {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final long DEBOUNCE_MS = 250;
+
+    private static class ViewSize {
+        final String trackId;
+        final int width;
+        final int height;
+
+        ViewSize(String trackId, int width, int height) {
+            this.trackId = trackId;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final WebRTCModule webRTCModule;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable reportRunnable = this::report;
+
+    private final Map<WebRTCView, ViewSize> views = new HashMap<>();
+    // Track ID -> last reported size, as {width, height}.
+    private final Map<String, int[]> reported = new HashMap<>();
+    private final Set<String> pendingTrackIds = new HashSet<>();
+
+    VideoViewSizes(WebRTCModule webRTCModule) {
+        this.webRTCModule = webRTCModule;
+    }
+
+    /**
+     * Updates the size at which a view renders a track.
+     *
+     * @param trackId the track the view renders, null if it doesn't render anything.
+     */
+    void update(WebRTCView view, @Nullable String trackId, int width, int height) {
+        ViewSize previous = views.get(view);
+        if (trackId == null || width <= 0 || height <= 0) {
+            if (previous == null) {
+                return;
+            }
+            views.remove(view);
+        } else {
+            if (previous != null && previous.trackId.equals(trackId) && previous.width == width
+                    && previous.height == height) {
+                return;
+            }
+            views.put(view, new ViewSize(trackId, width, height));
+            pendingTrackIds.add(trackId);
+        }
+
+        if (previous != null) {
+            pendingTrackIds.add(previous.trackId);
+        }
+
+        handler.removeCallbacks(reportRunnable);
+        handler.postDelayed(reportRunnable, DEBOUNCE_MS);
+    }
+
+    private void report() {
+        for (String trackId : pendingTrackIds) {
+            int width = 0;
+            int height = 0;
+            int count = 0;
+            for (ViewSize size : views.values()) {
+                if (size.trackId.equals(trackId)) {
+                    width = Math.max(width, size.width);
+                    height = Math.max(height, size.height);
+                    count++;
+                }
+            }
+
+            int[] last = reported.get(trackId);
+            if (last == null ? count == 0 : last[0] == width && last[1] == height) {
+                continue;
+            }
+            if (count == 0) {
+                reported.remove(trackId);
+            } else {
+                reported.put(trackId, new int[] {width, height});
+            }
+
+            Log.d(TAG, "Video view size for track " + trackId + ": " + width + "x" + height);
+
+            WritableMap params = Arguments.createMap();
+            params.putString("trackId", trackId);
+            params.putInt("width", width);
+            params.putInt("height", height);
+            params.putInt("views", count);
+            webRTCModule.sendEvent("videoTrackViewSizeChanged", params);
+        }
+        pendingTrackIds.clear();
+    }
+}
@@ -21,8 +21,11 @@ import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.oney.WebRTCModule.webrtcutils.CodecTelemetry;
 import com.oney.WebRTCModule.webrtcutils.H264AndSoftwareVideoDecoderFactory;
 import com.oney.WebRTCModule.webrtcutils.H264AndSoftwareVideoEncoderFactory;
+import com.oney.WebRTCModule.webrtcutils.HardwareCodecProbeCache;
+import com.oney.WebRTCModule.webrtcutils.ScalabilityModes;
 
 import org.webrtc.AddIceObserver;
 import org.webrtc.AudioProcessingFactory;
@@ -39,6 +42,7 @@ import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
 import org.webrtc.PeerConnectionFactory;
 import org.webrtc.RTCStatsReport;
+import org.webrtc.RtcCertificatePem;
 import org.webrtc.RtpCapabilities;
 import org.webrtc.RtpParameters;
 import org.webrtc.RtpSender;
@@ -57,16 +61,22 @@ import org.webrtc.audio.JavaAudioDeviceModule;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ReactModule(name = "WebRTCModule")
 public class WebRTCModule extends ReactContextBaseJavaModule {
     static final String TAG = WebRTCModule.class.getCanonicalName();
 
+    // Set by initializeFactory in the executor, use getFactory() outside of it.
+    private final Future<?> factoryInitialization;
     PeerConnectionFactory mFactory;
     VideoEncoderFactory mVideoEncoderFactory;
     VideoDecoderFactory mVideoDecoderFactory;
@@ -77,13 +87,33 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     final Map<String, MediaStream> localStreams;
 
     private final GetUserMediaImpl getUserMediaImpl;
+    private final PeerConnectionPool peerConnectionPool;
+    private final CertificateCache certificateCache;
+    private final StartupTimings startupTimings;
+    private final RtpCapabilitiesCache rtpCapabilitiesCache = new RtpCapabilitiesCache();
+    @Nullable
+    private final CodecTelemetry codecTelemetry;
+    private final VideoViewSizes videoViewSizes = new VideoViewSizes(this);
 
     public WebRTCModule(ReactApplicationContext reactContext) {
         super(reactContext);
 
         mPeerConnectionObservers = new SparseArray<>();
         localStreams = new HashMap<>();
+        peerConnectionPool = new PeerConnectionPool(this);
+        certificateCache = new CertificateCache(reactContext);
+        startupTimings = new StartupTimings(WebRTCModuleOptions.getInstance().enableStartupTracing);
+        codecTelemetry = WebRTCModuleOptions.getInstance().enableCodecTelemetry ? new CodecTelemetry() : null;
 
+        // Building the factory loads the native library, creates the EGL context, the codec factories and the
+        // ADM, which takes a while. Do it in the executor, where most WebRTC calls run anyway: being the first
+        // task, those calls see the factory ready. Calls made elsewhere wait for it in getFactory().
+        factoryInitialization = ThreadUtils.submitToExecutor(() -> initializeFactory(reactContext));
+
+        getUserMediaImpl = new GetUserMediaImpl(this, reactContext);
+    }
+
+    private void initializeFactory(ReactApplicationContext reactContext) {
         WebRTCModuleOptions options = WebRTCModuleOptions.getInstance();
 
         AudioDeviceModule adm = options.audioDeviceModule;
@@ -93,6 +123,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         Logging.Severity loggingSeverity = options.loggingSeverity;
         String fieldTrials = options.fieldTrials;
 
+        startupTimings.begin("initialize");
         PeerConnectionFactory.initialize(PeerConnectionFactory.InitializationOptions.builder(reactContext)
                                                  .setFieldTrials(fieldTrials)
                                                  .setNativeLibraryLoader(new LibraryLoader())
@@ -102,31 +133,70 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         if (injectableLogger == null && loggingSeverity != null) {
             Logging.enableLogToDebugOutput(loggingSeverity);
         }
+        startupTimings.end();
 
         if (encoderFactory == null || decoderFactory == null) {
             // Initialize EGL context required for HW acceleration.
+            startupTimings.begin("eglContext");
             EglBase.Context eglContext = EglUtils.getRootEglBaseContext();
+            startupTimings.end();
 
+            startupTimings.begin("codecFactories");
             if (eglContext != null) {
-                encoderFactory = new H264AndSoftwareVideoEncoderFactory(eglContext);
-                decoderFactory = new H264AndSoftwareVideoDecoderFactory(eglContext);
+                HardwareCodecProbeCache probeCache =
+                        options.persistHardwareCodecProbe ? new HardwareCodecProbeCache(reactContext) : null;
+                encoderFactory =
+                        new H264AndSoftwareVideoEncoderFactory(eglContext, probeCache, options.videoCodecPolicy);
+                decoderFactory =
+                        new H264AndSoftwareVideoDecoderFactory(eglContext, probeCache, options.videoCodecPolicy);
             } else {
                 encoderFactory = new SoftwareVideoEncoderFactory();
                 decoderFactory = new SoftwareVideoDecoderFactory();
             }
+            startupTimings.end();
+        }
+
+        if (encoderFactory instanceof H264AndSoftwareVideoEncoderFactory) {
+            H264AndSoftwareVideoEncoderFactory factory = (H264AndSoftwareVideoEncoderFactory) encoderFactory;
+            factory.setTelemetry(codecTelemetry);
+            factory.setFallbackListener(new H264AndSoftwareVideoEncoderFactory.FallbackListener() {
+                @Override
+                public void onEncoderFallback(String codec, String implementationName, String reason) {
+                    sendEncoderEvent("videoEncoderFallback", codec, implementationName, reason);
+                }
+
+                @Override
+                public void onEncoderDegraded(String codec, String implementationName, String reason) {
+                    sendEncoderEvent("videoEncoderDegraded", codec, implementationName, reason);
+                }
+            });
+        }
+        if (decoderFactory instanceof H264AndSoftwareVideoDecoderFactory) {
+            ((H264AndSoftwareVideoDecoderFactory) decoderFactory).setTelemetry(codecTelemetry);
+        }
+
+        if (encoderFactory instanceof H264AndSoftwareVideoEncoderFactory) {
+            rtpCapabilitiesCache.setScalabilityModes(
+                    ((H264AndSoftwareVideoEncoderFactory) encoderFactory)::getScalabilityModes);
+        } else if (encoderFactory instanceof SoftwareVideoEncoderFactory) {
+            rtpCapabilitiesCache.setScalabilityModes(ScalabilityModes::forSoftwareEncoder);
         }
 
         if (adm == null) {
+            startupTimings.begin("audioDeviceModule");
             adm = JavaAudioDeviceModule.builder(reactContext).createAudioDeviceModule();
+            startupTimings.end();
         }
 
         AudioProcessingFactory audioProcessingFactory = null;
-        try {
-            if (options.audioProcessingFactoryFactory != null) {
+        if (options.audioProcessingFactoryFactory != null) {
+            startupTimings.begin("audioProcessingFactory");
+            try {
                 audioProcessingFactory = options.audioProcessingFactoryFactory.call();
+            } catch (Exception e) {
+                // do nothing.
             }
-        } catch (Exception e) {
-            // do nothing.
+            startupTimings.end();
         }
 
         Log.d(TAG, "Using video encoder factory: " + encoderFactory.getClass().getCanonicalName());
@@ -141,6 +211,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
             pcFactoryBuilder.setAudioProcessingFactory(audioProcessingFactory);
         }
 
+        startupTimings.begin("peerConnectionFactory");
         mFactory = pcFactoryBuilder.createPeerConnectionFactory();
 
         // PeerConnectionFactory now owns the adm native pointer, and we don't need it anymore.
@@ -151,7 +222,54 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         mVideoDecoderFactory = decoderFactory;
         mAudioDeviceModule = adm;
 
-        getUserMediaImpl = new GetUserMediaImpl(this, reactContext);
+        startupTimings.finish();
+        Log.d(TAG, "PeerConnectionFactory initialized: " + startupTimings);
+    }
+
+    /**
+     * Returns the PeerConnectionFactory, waiting for its initialization to complete if necessary.
+     */
+    PeerConnectionFactory getFactory() {
+        try {
+            factoryInitialization.get();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException("PeerConnectionFactory initialization failed", e);
+        }
+
+        return mFactory;
+    }
+
+    VideoViewSizes getVideoViewSizes() {
+        return videoViewSizes;
+    }
+
+    /**
+     * Resolves with the duration of each module initialization phase, once the initialization is complete.
+     */
+    @ReactMethod
+    public void getStartupTimings(Promise promise) {
+        ThreadUtils.runOnExecutor(() -> promise.resolve(startupTimings.toWritableMap()));
+    }
+
+    /**
+     * Resolves with the encode / decode timing collected for the hardware codecs, see
+     * {@link WebRTCModuleOptions#enableCodecTelemetry}.
+     */
+    @ReactMethod
+    public void getCodecTelemetry(Promise promise) {
+        if (codecTelemetry == null) {
+            promise.reject("E_INVALID", "Codec telemetry is not enabled");
+            return;
+        }
+
+        promise.resolve(SerializeUtils.serializeCodecTelemetry(codecTelemetry));
+    }
+
+    @ReactMethod
+    public void resetCodecTelemetry() {
+        if (codecTelemetry != null) {
+            codecTelemetry.reset();
+        }
     }
 
     @NonNull
@@ -160,6 +278,14 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         return "WebRTCModule";
     }
 
+    @Override
+    public void invalidate() {
+        getUserMediaImpl.invalidate();
+        // The idle pooled PeerConnections would otherwise outlive the module, e.g. across a reload.
+        ThreadUtils.runOnExecutor(peerConnectionPool::clear);
+        super.invalidate();
+    }
+
     public PeerConnectionObserver getPeerConnectionObserver(int id) {
         return mPeerConnectionObservers.get(id);
     }
@@ -174,6 +300,14 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 .emit(eventName, params);
     }
 
+    private void sendEncoderEvent(String eventName, String codec, String implementationName, String reason) {
+        WritableMap params = Arguments.createMap();
+        params.putString("codec", codec);
+        params.putString("implementationName", implementationName);
+        params.putString("reason", reason);
+        sendEvent(eventName, params);
+    }
+
     private PeerConnection.IceServer createIceServer(String url) {
         return PeerConnection.IceServer.builder(url).createIceServer();
     }
@@ -217,6 +351,22 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         return iceServers;
     }
 
+    @Nullable
+    private static PeerConnection.KeyType parseKeyType(@Nullable String keyType) {
+        if (keyType == null) {
+            return null;
+        }
+
+        switch (keyType) {
+            case "RSA":
+                return PeerConnection.KeyType.RSA;
+            case "ECDSA":
+                return PeerConnection.KeyType.ECDSA;
+            default:
+                return null;
+        }
+    }
+
     private PeerConnection.RTCConfiguration parseRTCConfiguration(ReadableMap map) {
         ReadableArray iceServersArray = null;
         if (map != null && map.hasKey("iceServers")) {
@@ -298,7 +448,6 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
 
         // FIXME: peerIdentity of type DOMString (public api)
-        // FIXME: certificates of type sequence<RTCCertificate> (public api)
 
         // iceCandidatePoolSize of type unsigned short, defaulting to 0
         if (map.hasKey("iceCandidatePoolSize") && map.getType("iceCandidatePoolSize") == ReadableType.Number) {
@@ -342,15 +491,27 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
         // KeyType (private api)
         if (map.hasKey("keyType") && map.getType("keyType") == ReadableType.String) {
-            final String v = map.getString("keyType");
+            final PeerConnection.KeyType v = parseKeyType(map.getString("keyType"));
             if (v != null) {
-                switch (v) {
-                    case "RSA":
-                        conf.keyType = PeerConnection.KeyType.RSA;
-                        break;
-                    case "ECDSA":
-                        conf.keyType = PeerConnection.KeyType.ECDSA;
-                        break;
+                conf.keyType = v;
+            }
+        }
+
+        // certificates of type sequence<RTCCertificate> (public api), only the first one is used. They
+        // are the ones returned by generateCertificate, which live in the certificate cache.
+        if (map.hasKey("certificates") && map.getType("certificates") == ReadableType.Array) {
+            final ReadableArray v = map.getArray("certificates");
+            if (v != null && v.size() > 0 && v.getType(0) == ReadableType.Map) {
+                final ReadableMap certificateMap = v.getMap(0);
+                final PeerConnection.KeyType keyType = certificateMap.hasKey("keyType")
+                        ? parseKeyType(certificateMap.getString("keyType"))
+                        : null;
+                final RtcCertificatePem certificate = keyType != null ? certificateCache.get(keyType) : null;
+                if (certificate != null) {
+                    conf.keyType = keyType;
+                    conf.certificate = certificate;
+                } else {
+                    Log.w(TAG, "parseRTCConfiguration() certificate not found or expired, a new one will be used");
                 }
             }
         }
@@ -416,19 +577,44 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         return conf;
     }
 
+    /**
+     * Parses the non-standard sdpTransforms configuration key, see {@link SdpTransformer}.
+     */
+    @Nullable
+    private SdpTransformer parseSdpTransforms(@Nullable ReadableMap map) {
+        if (map == null || !map.hasKey("sdpTransforms") || map.getType("sdpTransforms") != ReadableType.Map) {
+            return null;
+        }
+
+        return SdpTransformer.fromMap(map.getMap("sdpTransforms"));
+    }
+
     @ReactMethod(isBlockingSynchronousMethod = true)
     public boolean peerConnectionInit(ReadableMap configuration, int id) {
         PeerConnection.RTCConfiguration rtcConfiguration = parseRTCConfiguration(configuration);
 
+        // Non-standard: only ship description versions across the bridge, see
+        // PeerConnectionObserver#isLazySessionDescriptions.
+        final boolean lazySessionDescriptions = configuration != null
+                && configuration.hasKey("lazySessionDescriptions")
+                && configuration.getType("lazySessionDescriptions") == ReadableType.Boolean
+                && configuration.getBoolean("lazySessionDescriptions");
+        final SdpTransformer sdpTransformer = parseSdpTransforms(configuration);
+
         try {
             return (boolean) ThreadUtils
                     .submitToExecutor(() -> {
-                        PeerConnectionObserver observer = new PeerConnectionObserver(this, id);
-                        PeerConnection peerConnection = mFactory.createPeerConnection(rtcConfiguration, observer);
-                        if (peerConnection == null) {
-                            return false;
+                        PeerConnectionObserver observer = peerConnectionPool.claim(configuration, id);
+                        if (observer == null) {
+                            observer = new PeerConnectionObserver(this, id);
+                            PeerConnection peerConnection = mFactory.createPeerConnection(rtcConfiguration, observer);
+                            if (peerConnection == null) {
+                                return false;
+                            }
+                            observer.setPeerConnection(peerConnection);
                         }
-                        observer.setPeerConnection(peerConnection);
+                        observer.setLazySessionDescriptions(lazySessionDescriptions);
+                        observer.setSdpTransformer(sdpTransformer);
                         mPeerConnectionObservers.put(id, observer);
                         return true;
                     })
@@ -439,6 +625,90 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Keeps {@code size} PeerConnections created with the given configuration ready to be claimed by
+     * {@link #peerConnectionInit}. A size of 0 releases them.
+     */
+    @ReactMethod
+    public void peerConnectionPoolConfigure(ReadableMap configuration, int size) {
+        PeerConnection.RTCConfiguration rtcConfiguration = parseRTCConfiguration(configuration);
+
+        ThreadUtils.runOnExecutor(() -> peerConnectionPool.configure(configuration, rtcConfiguration, size));
+    }
+
+    /**
+     * Returns a cached DTLS certificate of the requested key type, generating one if there is none which
+     * is still valid. Optionally the certificate is persisted to app storage, so it survives restarts.
+     */
+    @ReactMethod
+    public void peerConnectionGenerateCertificate(ReadableMap options, Promise promise) {
+        PeerConnection.KeyType keyType = PeerConnection.KeyType.ECDSA;
+        long expires = CertificateCache.DEFAULT_EXPIRES_MS;
+        boolean persist = false;
+
+        if (options != null) {
+            if (options.hasKey("keyType") && options.getType("keyType") == ReadableType.String) {
+                keyType = parseKeyType(options.getString("keyType"));
+                if (keyType == null) {
+                    promise.reject("E_INVALID", "Unsupported key type: " + options.getString("keyType"));
+                    return;
+                }
+            }
+            if (options.hasKey("expires") && options.getType("expires") == ReadableType.Number) {
+                expires = (long) options.getDouble("expires");
+                if (expires < 1000) {
+                    // Certificates are generated with a lifetime in seconds.
+                    promise.reject("E_INVALID", "expires must be at least 1000 ms: " + expires);
+                    return;
+                }
+            }
+            if (options.hasKey("persist") && options.getType("persist") == ReadableType.Boolean) {
+                persist = options.getBoolean("persist");
+            }
+        }
+
+        final PeerConnection.KeyType finalKeyType = keyType;
+        final long finalExpires = expires;
+        final boolean finalPersist = persist;
+
+        ThreadUtils.runOnExecutor(() -> {
+            try {
+                long expiresAt = certificateCache.getOrGenerate(finalKeyType, finalExpires, finalPersist);
+
+                WritableMap result = Arguments.createMap();
+                result.putString("keyType", finalKeyType.name());
+                result.putDouble("expires", expiresAt);
+                promise.resolve(result);
+            } catch (Exception e) {
+                Log.d(TAG, "peerConnectionGenerateCertificate() failed", e);
+                promise.reject("E_OPERATION_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void peerConnectionClearCertificates() {
+        ThreadUtils.runOnExecutor(certificateCache::clear);
+    }
+
+    @ReactMethod
+    public void peerConnectionPoolClear() {
+        ThreadUtils.runOnExecutor(peerConnectionPool::clear);
+    }
+
+    // Must be called in the executor.
+    List<PeerConnection> getPeerConnections() {
+        List<PeerConnection> peerConnections = new ArrayList<>();
+        for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
+            PeerConnection peerConnection = mPeerConnectionObservers.valueAt(i).getPeerConnection();
+            if (peerConnection != null) {
+                peerConnections.add(peerConnection);
+            }
+        }
+
+        return peerConnections;
+    }
+
     // Must be called in the executor.
     MediaStream getStreamForReactTag(String streamReactTag) {
         MediaStream stream = localStreams.get(streamReactTag);
@@ -654,6 +924,10 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
                 RtpParameters params = sender.getParameters();
                 params = SerializeUtils.updateRtpParameters(options, params);
+                SimulcastLayerController layerController = pco.getLayerController(senderId);
+                if (layerController != null) {
+                    layerController.setConfiguredParameters(params);
+                }
                 sender.setParameters(params);
                 promise.resolve(SerializeUtils.serializeRtpParameters(sender.getParameters()));
             } catch (Exception e) {
@@ -663,6 +937,55 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         });
     }
 
+    /**
+     * Attaches a {@link SimulcastLayerController} to the sender, or removes it if options is null.
+     */
+    @ReactMethod
+    public void senderSetLayerController(int id, String senderId, @Nullable ReadableMap options, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null) {
+                Log.d(TAG, "senderSetLayerController() peerConnectionObserver is null");
+                promise.reject(new Exception("Peer Connection is not initialized"));
+                return;
+            }
+
+            SimulcastLayerController.Options controllerOptions =
+                    options != null ? SimulcastLayerController.Options.fromReadableMap(options) : null;
+            if (!pco.setLayerController(senderId, controllerOptions)) {
+                Log.w(TAG, "senderSetLayerController() sender is null");
+                promise.reject(new Exception("Could not get sender"));
+                return;
+            }
+
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * Starts or stops reporting changes of the sender's qualityLimitationReason.
+     */
+    @ReactMethod
+    public void senderSetQualityLimitationMonitoring(
+            int id, String senderId, boolean enabled, double intervalMs, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null) {
+                Log.d(TAG, "senderSetQualityLimitationMonitoring() peerConnectionObserver is null");
+                promise.reject(new Exception("Peer Connection is not initialized"));
+                return;
+            }
+
+            if (!pco.setQualityLimitationMonitoring(senderId, enabled, Math.max(250, (long) intervalMs))) {
+                Log.w(TAG, "senderSetQualityLimitationMonitoring() sender is null");
+                promise.reject(new Exception("Could not get sender"));
+                return;
+            }
+
+            promise.resolve(null);
+        });
+    }
+
     @ReactMethod
     public void transceiverStop(int id, String senderId, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
@@ -680,6 +1003,8 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                     return;
                 }
 
+                pco.removeLayerController(senderId);
+                pco.setQualityLimitationMonitoring(senderId, false, 0);
                 transceiver.stopStandard();
                 promise.resolve(true);
             } catch (Exception e) {
@@ -773,19 +1098,21 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
                 if (direction.equals(RtpTransceiver.RtpTransceiverDirection.SEND_RECV)
                         || direction.equals(RtpTransceiver.RtpTransceiverDirection.SEND_ONLY)) {
-                    RtpCapabilities capabilities = mFactory.getRtpSenderCapabilities(transceiver.getMediaType());
-                    for (RtpCapabilities.CodecCapability codec : capabilities.codecs) {
-                        Map<String, Object> codecDict = SerializeUtils.serializeRtpCapabilitiesCodec(codec).toHashMap();
-                        availableCodecs.add(new Pair<>(codecDict, codec));
+                    RtpCapabilitiesCache.Entry capabilities =
+                            rtpCapabilitiesCache.getSenderCapabilities(mFactory, transceiver.getMediaType());
+                    for (int i = 0; i < capabilities.codecs.size(); i++) {
+                        availableCodecs.add(
+                                new Pair<>(capabilities.codecs.get(i), capabilities.capabilities.codecs.get(i)));
                     }
                 }
 
                 if (direction.equals(RtpTransceiver.RtpTransceiverDirection.SEND_RECV)
                         || direction.equals(RtpTransceiver.RtpTransceiverDirection.RECV_ONLY)) {
-                    RtpCapabilities capabilities = mFactory.getRtpReceiverCapabilities(transceiver.getMediaType());
-                    for (RtpCapabilities.CodecCapability codec : capabilities.codecs) {
-                        Map<String, Object> codecDict = SerializeUtils.serializeRtpCapabilitiesCodec(codec).toHashMap();
-                        availableCodecs.add(new Pair<>(codecDict, codec));
+                    RtpCapabilitiesCache.Entry capabilities =
+                            rtpCapabilitiesCache.getReceiverCapabilities(mFactory, transceiver.getMediaType());
+                    for (int i = 0; i < capabilities.codecs.size(); i++) {
+                        availableCodecs.add(
+                                new Pair<>(capabilities.codecs.get(i), capabilities.capabilities.codecs.get(i)));
                     }
                 }
 
@@ -794,6 +1121,8 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
                 for (int i = 0; i < codecPreferences.size(); i++) {
                     Map<String, Object> codecPref = codecPreferences.getMap(i).toHashMap();
+                    // Only part of the sender capabilities, not of the codec itself.
+                    codecPref.remove("scalabilityModes");
                     for (Pair<Map<String, Object>, RtpCapabilities.CodecCapability> pair : availableCodecs) {
                         Map<String, Object> availableCodecDict = pair.first;
                         if (codecPref.equals(availableCodecDict)) {
@@ -937,6 +1266,80 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         });
     }
 
+    @ReactMethod
+    public void mediaStreamTrackSetCameraStandby(
+            String id, boolean enabled, @Nullable String deviceId, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.setCameraStandby(id, enabled, deviceId, promise);
+            } else {
+                promise.reject(new Exception("mediaStreamTrackSetCameraStandby() could not find track " + id));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void mediaStreamTrackSwitchToStandbyCamera(String id, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.switchToStandbyCamera(id, promise);
+            } else {
+                promise.reject(new Exception("mediaStreamTrackSwitchToStandbyCamera() could not find track " + id));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void mediaStreamTrackGetCameraSwitchStats(String id, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.getCameraSwitchStats(id, promise);
+            } else {
+                promise.reject(new Exception("mediaStreamTrackGetCameraSwitchStats() could not find track " + id));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void mediaStreamTrackSetAdaptiveCapture(String id, @Nullable ReadableMap options, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.setAdaptiveCapture(id, options, promise);
+            } else {
+                promise.reject(new Exception("mediaStreamTrackSetAdaptiveCapture() could not find track " + id));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void mediaStreamTrackSetMaxFrameRate(String id, double maxFrameRate, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.setMaxFrameRate(id, maxFrameRate, promise);
+            } else {
+                promise.reject(new Exception("mediaStreamTrackSetMaxFrameRate() could not find track " + id));
+            }
+        });
+    }
+
+    @ReactMethod
+    public void mediaStreamTrackSetStaticContentDropping(String id, @Nullable ReadableMap options, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.setStaticContentDropping(id, options, promise);
+            } else {
+                promise.reject(
+                        new Exception("mediaStreamTrackSetStaticContentDropping() could not find track " + id));
+            }
+        });
+    }
+
     @ReactMethod
     public void mediaStreamTrackSetVolume(int pcId, String id, double volume) {
         ThreadUtils.runOnExecutor(() -> {
@@ -957,29 +1360,47 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
     /**
      * This serializes the transceivers current direction and mid and returns them
-     * for update when an sdp negotiation/renegotiation happens
+     * for update when an sdp negotiation/renegotiation happens. Only transceivers
+     * whose state changed since they were last reported are included.
      */
-    private ReadableArray getTransceiversInfo(PeerConnection peerConnection) {
+    private ReadableArray getTransceiversInfo(PeerConnectionObserver pco) {
         WritableArray transceiverUpdates = Arguments.createArray();
+        Set<String> transceiverIds = new HashSet<>();
+
+        for (RtpTransceiver transceiver : pco.getPeerConnection().getTransceivers()) {
+            String transceiverId = transceiver.getSender().id();
+            RtpTransceiver.RtpTransceiverDirection direction = transceiver.getCurrentDirection();
+            String mid = transceiver.getMid();
+            boolean isStopped = transceiver.isStopped();
+            RtpParameters senderRtpParameters = transceiver.getSender().getParameters();
+            RtpParameters receiverRtpParameters = transceiver.getReceiver().getParameters();
+
+            transceiverIds.add(transceiverId);
+
+            String state = SerializeUtils.transceiverStateFingerprint(
+                    direction, mid, isStopped, senderRtpParameters, receiverRtpParameters);
+            if (!pco.updateTransceiverState(transceiverId, state)) {
+                continue;
+            }
 
-        for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
             WritableMap transceiverUpdate = Arguments.createMap();
 
-            RtpTransceiver.RtpTransceiverDirection direction = transceiver.getCurrentDirection();
             if (direction != null) {
                 String directionSerialized = SerializeUtils.serializeDirection(direction);
                 transceiverUpdate.putString("currentDirection", directionSerialized);
             }
 
-            transceiverUpdate.putString("transceiverId", transceiver.getSender().id());
-            transceiverUpdate.putString("mid", transceiver.getMid());
-            transceiverUpdate.putBoolean("isStopped", transceiver.isStopped());
-            transceiverUpdate.putMap("senderRtpParameters",
-                    SerializeUtils.serializeRtpParameters(transceiver.getSender().getParameters()));
-            transceiverUpdate.putMap("receiverRtpParameters",
-                    SerializeUtils.serializeRtpParameters(transceiver.getReceiver().getParameters()));
+            transceiverUpdate.putString("transceiverId", transceiverId);
+            transceiverUpdate.putString("mid", mid);
+            transceiverUpdate.putBoolean("isStopped", isStopped);
+            transceiverUpdate.putMap("senderRtpParameters", SerializeUtils.serializeRtpParameters(senderRtpParameters));
+            transceiverUpdate.putMap(
+                    "receiverRtpParameters", SerializeUtils.serializeRtpParameters(receiverRtpParameters));
             transceiverUpdates.pushMap(transceiverUpdate);
         }
+
+        pco.retainTransceiverStates(transceiverIds);
+
         return transceiverUpdates;
     }
 
@@ -991,15 +1412,35 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionSetConfiguration(ReadableMap configuration, int id) {
         ThreadUtils.runOnExecutor(() -> {
-            PeerConnection peerConnection = getPeerConnection(id);
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
             if (peerConnection == null) {
                 Log.d(TAG, "peerConnectionSetConfiguration() peerConnection is null");
                 return;
             }
             peerConnection.setConfiguration(parseRTCConfiguration(configuration));
+            pco.setSdpTransformer(parseSdpTransforms(configuration));
         });
     }
 
+    /**
+     * Serializes the transceivers which are not part of the given receiver ids, i.e. the ones which were
+     * created as a side effect of an operation.
+     */
+    private WritableArray getNewTransceivers(int id, PeerConnectionObserver pco, Set<String> receiversIds) {
+        WritableArray newTransceivers = Arguments.createArray();
+        for (RtpTransceiver transceiver : pco.getPeerConnection().getTransceivers()) {
+            if (!receiversIds.contains(transceiver.getReceiver().id())) {
+                WritableMap newTransceiver = Arguments.createMap();
+                newTransceiver.putInt("transceiverOrder", pco.getNextTransceiverId());
+                newTransceiver.putMap("transceiver", SerializeUtils.serializeTransceiver(id, transceiver));
+                newTransceivers.pushMap(newTransceiver);
+            }
+        }
+
+        return newTransceivers;
+    }
+
     @ReactMethod
     public void peerConnectionCreateOffer(int id, ReadableMap options, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
@@ -1012,7 +1453,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            List<String> receiversIds = new ArrayList<>();
+            Set<String> receiversIds = new HashSet<>();
             for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
                 receiversIds.add(transceiver.getReceiver().id());
             }
@@ -1024,29 +1465,19 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 }
 
                 @Override
-                public void onCreateSuccess(SessionDescription sdp) {
+                public void onCreateSuccess(SessionDescription createdSdp) {
                     ThreadUtils.runOnExecutor(() -> {
+                        SessionDescription sdp = pco.transformLocalDescription(createdSdp);
                         WritableMap params = Arguments.createMap();
                         WritableMap sdpInfo = Arguments.createMap();
 
                         sdpInfo.putString("sdp", sdp.description);
                         sdpInfo.putString("type", sdp.type.canonicalForm());
 
-                        params.putArray("transceiversInfo", getTransceiversInfo(peerConnection));
+                        params.putArray("transceiversInfo", getTransceiversInfo(pco));
                         params.putMap("sdpInfo", sdpInfo);
 
-                        WritableArray newTransceivers = Arguments.createArray();
-                        for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
-                            if (!receiversIds.contains(transceiver.getReceiver().id())) {
-                                WritableMap newTransceiver = Arguments.createMap();
-                                newTransceiver.putInt("transceiverOrder", pco.getNextTransceiverId());
-                                newTransceiver.putMap(
-                                        "transceiver", SerializeUtils.serializeTransceiver(id, transceiver));
-                                newTransceivers.pushMap(newTransceiver);
-                            }
-                        }
-
-                        params.putArray("newTransceivers", newTransceivers);
+                        params.putArray("newTransceivers", getNewTransceivers(id, pco, receiversIds));
 
                         promise.resolve(params);
                     });
@@ -1066,7 +1497,8 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionCreateAnswer(int id, ReadableMap options, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
-            PeerConnection peerConnection = getPeerConnection(id);
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
 
             if (peerConnection == null) {
                 Log.d(TAG, "peerConnectionCreateAnswer() peerConnection is null");
@@ -1081,15 +1513,16 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 }
 
                 @Override
-                public void onCreateSuccess(SessionDescription sdp) {
+                public void onCreateSuccess(SessionDescription createdSdp) {
                     ThreadUtils.runOnExecutor(() -> {
+                        SessionDescription sdp = pco.transformLocalDescription(createdSdp);
                         WritableMap params = Arguments.createMap();
                         WritableMap sdpInfo = Arguments.createMap();
 
                         sdpInfo.putString("sdp", sdp.description);
                         sdpInfo.putString("type", sdp.type.canonicalForm());
 
-                        params.putArray("transceiversInfo", getTransceiversInfo(peerConnection));
+                        params.putArray("transceiversInfo", getTransceiversInfo(pco));
                         params.putMap("sdpInfo", sdpInfo);
 
                         promise.resolve(params);
@@ -1107,10 +1540,103 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         });
     }
 
+    /**
+     * Creates an offer or answer and applies it as the local description in a single operation, saving
+     * a round trip over the bridge (and a second copy of the SDP) compared to createOffer / createAnswer
+     * followed by setLocalDescription. Resolves with the applied description only.
+     */
+    @ReactMethod
+    public void peerConnectionCreateAndSetLocalDescription(int id, String type, ReadableMap options, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
+
+            if (peerConnection == null) {
+                Log.d(TAG, "peerConnectionCreateAndSetLocalDescription() peerConnection is null");
+                promise.reject(new Exception("PeerConnection not found"));
+                return;
+            }
+
+            boolean isOffer = "offer".equals(type);
+            if (!isOffer && !"answer".equals(type)) {
+                promise.reject("E_INVALID", "Invalid description type: " + type);
+                return;
+            }
+
+            Set<String> receiversIds = new HashSet<>();
+            for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
+                receiversIds.add(transceiver.getReceiver().id());
+            }
+
+            final SdpObserver setObserver = new SdpObserver() {
+                @Override
+                public void onCreateSuccess(SessionDescription sdp) {}
+
+                @Override
+                public void onSetSuccess() {
+                    ThreadUtils.runOnExecutor(() -> {
+                        WritableMap newSdpMap = Arguments.createMap();
+                        WritableMap params = Arguments.createMap();
+
+                        SessionDescription newSdp = peerConnection.getLocalDescription();
+                        if (newSdp != null) {
+                            newSdpMap.putString("type", newSdp.type.canonicalForm());
+                            newSdpMap.putString("sdp", newSdp.description);
+                        }
+
+                        params.putMap("sdpInfo", newSdpMap);
+                        params.putArray("transceiversInfo", getTransceiversInfo(pco));
+                        params.putArray("newTransceivers", getNewTransceivers(id, pco, receiversIds));
+
+                        pco.localDescriptionChanged();
+                        pco.putSdpVersions(params);
+
+                        promise.resolve(params);
+                    });
+                }
+
+                @Override
+                public void onCreateFailure(String s) {}
+
+                @Override
+                public void onSetFailure(String s) {
+                    ThreadUtils.runOnExecutor(() -> { promise.reject("E_OPERATION_ERROR", s); });
+                }
+            };
+
+            final SdpObserver createObserver = new SdpObserver() {
+                @Override
+                public void onCreateFailure(String s) {
+                    ThreadUtils.runOnExecutor(() -> { promise.reject("E_OPERATION_ERROR", s); });
+                }
+
+                @Override
+                public void onCreateSuccess(SessionDescription createdSdp) {
+                    ThreadUtils.runOnExecutor(() -> {
+                        peerConnection.setLocalDescription(setObserver, pco.transformLocalDescription(createdSdp));
+                    });
+                }
+
+                @Override
+                public void onSetFailure(String s) {}
+
+                @Override
+                public void onSetSuccess() {}
+            };
+
+            if (isOffer) {
+                peerConnection.createOffer(createObserver, constraintsForOptions(options));
+            } else {
+                peerConnection.createAnswer(createObserver, constraintsForOptions(options));
+            }
+        });
+    }
+
     @ReactMethod
     public void peerConnectionSetLocalDescription(int pcId, ReadableMap desc, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
-            PeerConnection peerConnection = getPeerConnection(pcId);
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(pcId);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
             if (peerConnection == null) {
                 Log.d(TAG, "peerConnectionSetLocalDescription() peerConnection is null");
                 promise.reject(new Exception("PeerConnection not found"));
@@ -1135,7 +1661,10 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                         }
 
                         params.putMap("sdpInfo", newSdpMap);
-                        params.putArray("transceiversInfo", getTransceiversInfo(peerConnection));
+                        params.putArray("transceiversInfo", getTransceiversInfo(pco));
+
+                        pco.localDescriptionChanged();
+                        pco.putSdpVersions(params);
 
                         promise.resolve(params);
                     });
@@ -1156,6 +1685,36 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                         desc.getString("sdp"));
 
                 peerConnection.setLocalDescription(observer, sdp);
+            } else if (pco.hasSdpTransformer()) {
+                // The description WebRTC would create implicitly can't be transformed, so it's created here: an
+                // answer when there is a remote offer, an offer otherwise, like the implicit setLocalDescription().
+                final SdpObserver createObserver = new SdpObserver() {
+                    @Override
+                    public void onCreateFailure(String s) {
+                        ThreadUtils.runOnExecutor(() -> { promise.reject("E_OPERATION_ERROR", s); });
+                    }
+
+                    @Override
+                    public void onCreateSuccess(SessionDescription createdSdp) {
+                        ThreadUtils.runOnExecutor(() -> {
+                            peerConnection.setLocalDescription(observer, pco.transformLocalDescription(createdSdp));
+                        });
+                    }
+
+                    @Override
+                    public void onSetFailure(String s) {}
+
+                    @Override
+                    public void onSetSuccess() {}
+                };
+
+                PeerConnection.SignalingState state = peerConnection.signalingState();
+                if (state == PeerConnection.SignalingState.HAVE_REMOTE_OFFER
+                        || state == PeerConnection.SignalingState.HAVE_LOCAL_PRANSWER) {
+                    peerConnection.createAnswer(createObserver, new MediaConstraints());
+                } else {
+                    peerConnection.createOffer(createObserver, new MediaConstraints());
+                }
             } else {
                 peerConnection.setLocalDescription(observer);
             }
@@ -1174,10 +1733,10 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            SessionDescription sdp = new SessionDescription(
-                    SessionDescription.Type.fromCanonicalForm(desc.getString("type")), desc.getString("sdp"));
+            SessionDescription sdp = pco.transformRemoteDescription(new SessionDescription(
+                    SessionDescription.Type.fromCanonicalForm(desc.getString("type")), desc.getString("sdp")));
 
-            List<String> receiversIds = new ArrayList<>();
+            Set<String> receiversIds = new HashSet<>();
             for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
                 receiversIds.add(transceiver.getReceiver().id());
             }
@@ -1199,21 +1758,15 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                             newSdpMap.putString("sdp", newSdp.description);
                         }
 
-                        params.putArray("transceiversInfo", getTransceiversInfo(peerConnection));
+                        params.putArray("transceiversInfo", getTransceiversInfo(pco));
                         params.putMap("sdpInfo", newSdpMap);
 
-                        WritableArray newTransceivers = Arguments.createArray();
-                        for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
-                            if (!receiversIds.contains(transceiver.getReceiver().id())) {
-                                WritableMap newTransceiver = Arguments.createMap();
-                                newTransceiver.putInt("transceiverOrder", pco.getNextTransceiverId());
-                                newTransceiver.putMap(
-                                        "transceiver", SerializeUtils.serializeTransceiver(id, transceiver));
-                                newTransceivers.pushMap(newTransceiver);
-                            }
-                        }
+                        params.putArray("newTransceivers", getNewTransceivers(id, pco, receiversIds));
 
-                        params.putArray("newTransceivers", newTransceivers);
+                        // With implicit rollback the local description may have changed too.
+                        pco.remoteDescriptionChanged();
+                        pco.localDescriptionChanged();
+                        pco.putSdpVersions(params);
 
                         promise.resolve(params);
                     });
@@ -1232,6 +1785,31 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         });
     }
 
+    /**
+     * Returns the current local or remote description along with the description
+     * versions. Used by JS to fetch descriptions lazily when lazySessionDescriptions
+     * is enabled.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap peerConnectionGetSessionDescription(int id, String which) {
+        try {
+            return (WritableMap) ThreadUtils
+                    .submitToExecutor((Callable<Object>) () -> {
+                        PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+                        if (pco == null || pco.getPeerConnection() == null) {
+                            Log.d(TAG, "peerConnectionGetSessionDescription() peerConnection is null");
+                            return null;
+                        }
+
+                        return pco.getSessionDescription("local".equals(which));
+                    })
+                    .get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.d(TAG, "peerConnectionGetSessionDescription() " + e.getMessage());
+            return null;
+        }
+    }
+
     @ReactMethod(isBlockingSynchronousMethod = true)
     public WritableMap receiverGetCapabilities(String kind) {
         try {
@@ -1246,8 +1824,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                             return Arguments.createMap();
                         }
 
-                        RtpCapabilities capabilities = mFactory.getRtpReceiverCapabilities(mediaType);
-                        return SerializeUtils.serializeRtpCapabilities(capabilities);
+                        return rtpCapabilitiesCache.getReceiverCapabilities(mFactory, mediaType).toWritableMap();
                     })
                     .get();
         } catch (ExecutionException | InterruptedException e) {
@@ -1270,8 +1847,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                             return Arguments.createMap();
                         }
 
-                        RtpCapabilities capabilities = mFactory.getRtpSenderCapabilities(mediaType);
-                        return SerializeUtils.serializeRtpCapabilities(capabilities);
+                        return rtpCapabilitiesCache.getSenderCapabilities(mFactory, mediaType).toWritableMap();
                     })
                     .get();
         } catch (ExecutionException | InterruptedException e) {
@@ -1309,31 +1885,33 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionAddICECandidate(int pcId, ReadableMap candidateMap, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
-            PeerConnection peerConnection = getPeerConnection(pcId);
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(pcId);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
             if (peerConnection == null) {
                 Log.d(TAG, "peerConnectionAddICECandidate() peerConnection is null");
                 promise.reject(new Exception("PeerConnection not found"));
                 return;
             }
 
-            if (!candidateMap.hasKey("sdpMid") && !candidateMap.hasKey("sdpMLineIndex")) {
+            IceCandidate candidate = SerializeUtils.parseIceCandidate(candidateMap);
+            if (candidate == null) {
                 promise.reject("E_TYPE_ERROR", "Invalid argument");
                 return;
             }
 
-            IceCandidate candidate = new IceCandidate(candidateMap.hasKey("sdpMid") && !candidateMap.isNull("sdpMid")
-                            ? candidateMap.getString("sdpMid")
-                            : "",
-                    candidateMap.hasKey("sdpMLineIndex") && !candidateMap.isNull("sdpMLineIndex")
-                            ? candidateMap.getInt("sdpMLineIndex")
-                            : 0,
-                    candidateMap.getString("candidate"));
-
             peerConnection.addIceCandidate(candidate, new AddIceObserver() {
                 @Override
                 public void onAddSuccess() {
                     ThreadUtils.runOnExecutor(() -> {
+                        pco.remoteDescriptionChanged();
+
                         WritableMap newSdpMap = Arguments.createMap();
+                        if (pco.isLazySessionDescriptions()) {
+                            pco.putSdpVersions(newSdpMap);
+                            promise.resolve(newSdpMap);
+                            return;
+                        }
+
                         SessionDescription newSdp = peerConnection.getRemoteDescription();
                         newSdpMap.putString("type", newSdp.type.canonicalForm());
                         newSdpMap.putString("sdp", newSdp.description);
@@ -1349,6 +1927,93 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         });
     }
 
+    /**
+     * Adds multiple remote ICE candidates in a single executor task. The promise
+     * is resolved once all of them have been processed, with a per-candidate
+     * result (in the same order as the given candidates) and the resulting
+     * remote description, which is only serialized once for the whole batch.
+     */
+    @ReactMethod
+    public void peerConnectionAddICECandidates(int pcId, ReadableArray candidates, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(pcId);
+            PeerConnection peerConnection = pco == null ? null : pco.getPeerConnection();
+            if (peerConnection == null) {
+                Log.d(TAG, "peerConnectionAddICECandidates() peerConnection is null");
+                promise.reject(new Exception("PeerConnection not found"));
+                return;
+            }
+
+            final int size = candidates == null ? 0 : candidates.size();
+            final String[] errors = new String[size];
+            final AtomicInteger pending = new AtomicInteger(size + 1);
+
+            final Runnable onCandidateDone = () -> {
+                if (pending.decrementAndGet() != 0) {
+                    return;
+                }
+                ThreadUtils.runOnExecutor(() -> {
+                    WritableArray results = Arguments.createArray();
+                    for (String error : errors) {
+                        WritableMap result = Arguments.createMap();
+                        result.putBoolean("success", error == null);
+                        if (error != null) {
+                            result.putString("error", error);
+                        }
+                        results.pushMap(result);
+                    }
+
+                    pco.remoteDescriptionChanged();
+
+                    WritableMap params = Arguments.createMap();
+                    params.putArray("results", results);
+
+                    if (pco.isLazySessionDescriptions()) {
+                        pco.putSdpVersions(params);
+                    } else {
+                        WritableMap newSdpMap = Arguments.createMap();
+                        SessionDescription newSdp = peerConnection.getRemoteDescription();
+                        if (newSdp != null) {
+                            newSdpMap.putString("type", newSdp.type.canonicalForm());
+                            newSdpMap.putString("sdp", newSdp.description);
+                        }
+                        params.putMap("sdpInfo", newSdpMap);
+                    }
+
+                    promise.resolve(params);
+                });
+            };
+
+            for (int i = 0; i < size; i++) {
+                final int index = i;
+                ReadableMap candidateMap = candidates.getMap(i);
+                IceCandidate candidate = candidateMap == null ? null : SerializeUtils.parseIceCandidate(candidateMap);
+                if (candidate == null) {
+                    errors[index] = "Invalid argument";
+                    onCandidateDone.run();
+                    continue;
+                }
+
+                peerConnection.addIceCandidate(candidate, new AddIceObserver() {
+                    @Override
+                    public void onAddSuccess() {
+                        onCandidateDone.run();
+                    }
+
+                    @Override
+                    public void onAddFailure(String s) {
+                        errors[index] = s != null ? s : "addIceCandidate failed";
+                        onCandidateDone.run();
+                    }
+                });
+            }
+
+            // Accounts for the extra count the pending counter started with, so the
+            // promise is not resolved before all candidates have been handed over.
+            onCandidateDone.run();
+        });
+    }
+
     @ReactMethod
     public void peerConnectionGetStats(int peerConnectionId, Promise promise) {
         ThreadUtils.runOnExecutor(() -> {
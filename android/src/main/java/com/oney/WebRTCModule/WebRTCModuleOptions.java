@@ -1,5 +1,7 @@
 package com.oney.WebRTCModule;
 
+import com.oney.WebRTCModule.webrtcutils.VideoCodecPolicy;
+
 import org.webrtc.AudioProcessingFactory;
 import org.webrtc.Loggable;
 import org.webrtc.Logging;
@@ -23,6 +25,29 @@ public class WebRTCModuleOptions {
     public boolean enableMediaProjectionService;
     public double defaultTrackVolume = 1.0;
 
+    /**
+     * Emit Android trace sections for the module initialization phases, see WebRTCModule#getStartupTimings.
+     */
+    public boolean enableStartupTracing;
+
+    /**
+     * Persist the hardware codecs found by the default encoder / decoder factories, so later launches
+     * don't have to walk MediaCodecList before the factory can be created. Off by default: when on, the probe
+     * result is stored on disk and the probe still runs once per launch on a background thread to refresh it.
+     */
+    public boolean persistHardwareCodecProbe;
+
+    /**
+     * Hardware / software selection per codec for the default encoder and decoder factories.
+     */
+    public VideoCodecPolicy videoCodecPolicy;
+
+    /**
+     * Collect per-frame encode / decode timing for the hardware codecs of the default factories, see
+     * WebRTCModule#getCodecTelemetry.
+     */
+    public boolean enableCodecTelemetry;
+
     public static WebRTCModuleOptions getInstance() {
         if (instance == null) {
             instance = new WebRTCModuleOptions();
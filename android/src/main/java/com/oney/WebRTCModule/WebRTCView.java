@@ -149,6 +149,12 @@ public class WebRTCView extends ViewGroup {
      */
     private VideoTrack videoTrack;
 
+    /**
+     * The ID of {@link #videoTrack}, under which the size this view renders it
+     * at is reported to {@link VideoViewSizes}.
+     */
+    private String videoTrackId;
+
     /**
      * The callback to be called when video dimensions change.
      */
@@ -318,6 +324,8 @@ public class WebRTCView extends ViewGroup {
         int height = b - t;
         int width = r - l;
 
+        reportViewSize(width, height);
+
         if (height == 0 || width == 0) {
             l = t = r = b = 0;
         } else {
@@ -390,6 +398,7 @@ public class WebRTCView extends ViewGroup {
             surfaceViewRenderer.release();
             surfaceViewRendererInstances--;
             rendererAttached = false;
+            reportViewSize(getWidth(), getHeight());
 
             // Since this WebRTCView is no longer rendering anything, make sure
             // surfaceViewRenderer displays nothing as well.
@@ -526,6 +535,15 @@ public class WebRTCView extends ViewGroup {
             }
 
             this.videoTrack = videoTrack;
+            videoTrackId = null;
+            if (videoTrack != null) {
+                try {
+                    videoTrackId = videoTrack.id();
+                } catch (IllegalStateException e) {
+                    // The track was released in the meantime, nothing to
+                    // report its size for.
+                }
+            }
 
             if (videoTrack != null) {
                 tryAddRendererToVideoTrack();
@@ -597,9 +615,24 @@ public class WebRTCView extends ViewGroup {
             });
 
             rendererAttached = true;
+            reportViewSize(getWidth(), getHeight());
         }
     }
 
+    /**
+     * Reports the size this view renders {@link #videoTrack} at, so the
+     * resolution received for it can be matched to it. A view which doesn't
+     * render anything is reported with no track.
+     */
+    private void reportViewSize(int width, int height) {
+        WebRTCModule module = ((ReactContext) getContext()).getNativeModule(WebRTCModule.class);
+        if (module == null) {
+            return;
+        }
+
+        module.getVideoViewSizes().update(this, rendererAttached ? videoTrackId : null, width, height);
+    }
+
     /**
      * Sets whether the onDimensionsChange callback should be called.
      *
@@ -0,0 +1,95 @@
+package com.oney.WebRTCModule.videoEffects;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoProcessor;
+import org.webrtc.VideoSink;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops captured frames to stay under a maximum frame rate, based on their timestamps, without reconfiguring
+ * the capturer. Frames are dropped before any other processing: the kept ones are passed on to the next
+ * processor (e.g. a {@link VideoEffectProcessor}), if any, or to the video source.
+ */
+public class FrameRateLimiter implements VideoProcessor {
+    private VideoSink mSink;
+    @Nullable
+    final private VideoProcessor next;
+
+    private volatile long frameIntervalNs;
+    // The earliest timestamp of the next frame to keep, -1 to keep the next frame whatever its timestamp.
+    private long nextFrameTimestampNs = -1;
+
+    public FrameRateLimiter(double maxFrameRate, @Nullable VideoProcessor next) {
+        this.next = next;
+        setMaxFrameRate(maxFrameRate);
+    }
+
+    public void setMaxFrameRate(double maxFrameRate) {
+        frameIntervalNs = (long) (TimeUnit.SECONDS.toNanos(1) / maxFrameRate);
+    }
+
+    @Nullable
+    public VideoProcessor getNext() {
+        return next;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {
+        synchronized (this) {
+            nextFrameTimestampNs = -1;
+        }
+        if (next != null) {
+            next.onCapturerStarted(success);
+        }
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        if (next != null) {
+            next.onCapturerStopped();
+        }
+    }
+
+    @Override
+    public void setSink(VideoSink sink) {
+        mSink = sink;
+        if (next != null) {
+            next.setSink(sink);
+        }
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        if (!shouldKeep(frame.getTimestampNs())) {
+            return;
+        }
+
+        if (next != null) {
+            next.onFrameCaptured(frame);
+        } else {
+            mSink.onFrame(frame);
+        }
+    }
+
+    private synchronized boolean shouldKeep(long timestampNs) {
+        long intervalNs = frameIntervalNs;
+        // Capture timestamps jitter: a frame a little early for its slot still takes it.
+        long toleranceNs = intervalNs / 10;
+
+        if (nextFrameTimestampNs != -1 && timestampNs + toleranceNs < nextFrameTimestampNs) {
+            return false;
+        }
+
+        // Slots are spaced from the previous one rather than from the frame, so that e.g. 30 fps limited to
+        // 20 fps keeps 2 frames out of 3 instead of 1 out of 2. After a gap, start over from this frame.
+        if (nextFrameTimestampNs == -1 || timestampNs - nextFrameTimestampNs > intervalNs) {
+            nextFrameTimestampNs = timestampNs;
+        }
+        nextFrameTimestampNs += intervalNs;
+
+        return true;
+    }
+}
@@ -21,6 +21,14 @@ public class VideoEffectProcessor implements VideoProcessor {
         this.videoFrameProcessors = processors;
     }
 
+    /**
+     * Returns a processor running the same processors with another {@link SurfaceTextureHelper}, e.g. the one
+     * of the camera a track switched to.
+     */
+    public VideoEffectProcessor withTextureHelper(SurfaceTextureHelper textureHelper) {
+        return new VideoEffectProcessor(videoFrameProcessors, textureHelper);
+    }
+
     @Override
     public void onCapturerStarted(boolean success) {}
 
@@ -0,0 +1,158 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates per-frame timing collected by the instrumented encoders and decoders, per codec
+ * implementation. Only encoders / decoders implemented in Java (i.e. the hardware ones) can be
+ * instrumented, the software ones live entirely in native code.
+ */
+public class CodecTelemetry {
+    /**
+     * Upper bounds (inclusive, in ms) of the latency histogram buckets. The last bucket has no upper bound.
+     */
+    public static final int[] LATENCY_BUCKETS_MS = {1, 2, 4, 8, 16, 33, 66, 133};
+
+    public static class Stats {
+        public final boolean encoder;
+        public final String codec;
+        public final String implementationName;
+
+        private long frames;
+        private long keyFrames;
+        private long bytes;
+        private long latencyCount;
+        private double latencySumMs;
+        private double latencyMaxMs;
+        private final long[] latencyBuckets = new long[LATENCY_BUCKETS_MS.length + 1];
+
+        // Encoders only: time-weighted target bitrate, to compare with the produced one. The target is the
+        // sum over all live encoders of this implementation, e.g. simulcast layers.
+        private long firstFrameNs;
+        private long lastFrameNs;
+        private double targetBitsIntegral;
+        private long lastTargetUpdateNs;
+        private long targetBps;
+
+        Stats(boolean encoder, String codec, String implementationName) {
+            this.encoder = encoder;
+            this.codec = codec;
+            this.implementationName = implementationName;
+        }
+
+        /**
+         * Records an encoded frame, produced by an encoder or fed to a decoder.
+         */
+        synchronized void onFrame(long nowNs, int size, boolean keyFrame) {
+            if (frames == 0) {
+                firstFrameNs = nowNs;
+                lastTargetUpdateNs = nowNs;
+            }
+            frames++;
+            lastFrameNs = nowNs;
+            bytes += size;
+            if (keyFrame) {
+                keyFrames++;
+            }
+        }
+
+        synchronized void onLatency(double latencyMs) {
+            latencyCount++;
+            latencySumMs += latencyMs;
+            latencyMaxMs = Math.max(latencyMaxMs, latencyMs);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MS.length && latencyMs > LATENCY_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            latencyBuckets[bucket]++;
+        }
+
+        /**
+         * Applies the change in the target bitrate of one encoder.
+         */
+        synchronized void onTargetBitrateChanged(long nowNs, long deltaBps) {
+            if (frames > 0) {
+                targetBitsIntegral += targetBps * (nowNs - lastTargetUpdateNs) / 1e9;
+                lastTargetUpdateNs = nowNs;
+            }
+            targetBps += deltaBps;
+        }
+
+        synchronized void clear() {
+            frames = 0;
+            keyFrames = 0;
+            bytes = 0;
+            latencyCount = 0;
+            latencySumMs = 0;
+            latencyMaxMs = 0;
+            Arrays.fill(latencyBuckets, 0);
+            targetBitsIntegral = 0;
+        }
+
+        public synchronized long getFrames() {
+            return frames;
+        }
+
+        public synchronized long getKeyFrames() {
+            return keyFrames;
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+
+        public synchronized long getLatencyCount() {
+            return latencyCount;
+        }
+
+        public synchronized double getLatencyMeanMs() {
+            return latencyCount > 0 ? latencySumMs / latencyCount : 0;
+        }
+
+        public synchronized double getLatencyMaxMs() {
+            return latencyMaxMs;
+        }
+
+        public synchronized long[] getLatencyBuckets() {
+            return latencyBuckets.clone();
+        }
+
+        /**
+         * Produced bitrate divided by the (time-weighted) target bitrate over the same period, 1 meaning
+         * the encoder hit its target exactly. Negative if unknown, e.g. for decoders.
+         */
+        public synchronized double getBitrateAccuracy() {
+            double targetBits = targetBitsIntegral + targetBps * (lastFrameNs - lastTargetUpdateNs) / 1e9;
+            if (!encoder || targetBits <= 0 || lastFrameNs <= firstFrameNs) {
+                return -1;
+            }
+
+            return bytes * 8 / targetBits;
+        }
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    Stats getStats(boolean encoder, String codec, String implementationName) {
+        String key = (encoder ? "encoder/" : "decoder/") + codec + "/" + implementationName;
+
+        return stats.computeIfAbsent(key, k -> new Stats(encoder, codec, implementationName));
+    }
+
+    public List<Stats> getAll() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * Clears the collected data. Encoders and decoders which are still alive keep reporting.
+     */
+    public void reset() {
+        for (Stats s : stats.values()) {
+            s.clear();
+        }
+    }
+}
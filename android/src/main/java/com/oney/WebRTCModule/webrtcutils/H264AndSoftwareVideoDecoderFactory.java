@@ -7,6 +7,7 @@ import org.webrtc.HardwareVideoDecoderFactory;
 import org.webrtc.VideoCodecInfo;
 import org.webrtc.VideoDecoder;
 import org.webrtc.VideoDecoderFactory;
+import org.webrtc.VideoDecoderFallback;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,38 +15,111 @@ import java.util.List;
 
 /**
  * This is a custom video decoder factory for WebRTC which behaves similarly
- * to the default one in iOS. It supports the following codecs:
+ * to the default one in iOS. By default it supports the following codecs:
  *
  * - In hardware: H.264 (high, baseline)
  * - In software: VP8, VP9, AV1
+ *
+ * A {@link VideoCodecPolicy} can select hardware for other codecs too.
  */
 public class H264AndSoftwareVideoDecoderFactory implements VideoDecoderFactory {
     private final VideoDecoderFactory hardwareVideoDecoderFactory;
     private final VideoDecoderFactory softwareVideoDecoderFactory;
 
+    // Computed once, see H264AndSoftwareVideoEncoderFactory.
+    @Nullable
+    private VideoCodecInfo[] supportedCodecs;
+
+    @Nullable
+    private final HardwareCodecProbeCache probeCache;
+    private final VideoCodecPolicy policy;
+
+    @Nullable
+    private volatile CodecTelemetry telemetry;
+
     public H264AndSoftwareVideoDecoderFactory(@Nullable EglBase.Context eglContext) {
+        this(eglContext, null, null);
+    }
+
+    /**
+     * @param probeCache if given, the hardware codecs are read from / persisted to it.
+     * @param policy which codecs to handle in hardware, the default policy if null.
+     */
+    public H264AndSoftwareVideoDecoderFactory(@Nullable EglBase.Context eglContext,
+            @Nullable HardwareCodecProbeCache probeCache, @Nullable VideoCodecPolicy policy) {
         this.hardwareVideoDecoderFactory = new HardwareVideoDecoderFactory(eglContext);
         this.softwareVideoDecoderFactory = new SoftwareVideoDecoderFactoryProxy();
+        this.probeCache = probeCache;
+        this.policy = policy != null ? policy : new VideoCodecPolicy();
+    }
+
+    /**
+     * Enables per-frame timing of the hardware decoders created from now on.
+     */
+    public void setTelemetry(@Nullable CodecTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Nullable
+    private VideoDecoder createHardwareDecoder(VideoCodecInfo codecInfo) {
+        VideoDecoder decoder = this.hardwareVideoDecoderFactory.createDecoder(codecInfo);
+        CodecTelemetry telemetry = this.telemetry;
+        if (decoder != null && telemetry != null) {
+            return new InstrumentedVideoDecoder(decoder, codecInfo.name, telemetry);
+        }
+
+        return decoder;
     }
 
     @Nullable
     @Override
     public VideoDecoder createDecoder(VideoCodecInfo codecInfo) {
-        if (codecInfo.name.equalsIgnoreCase("H264")) {
-            return this.hardwareVideoDecoderFactory.createDecoder(codecInfo);
+        VideoCodecPolicy.Rule rule = policy.getRule(codecInfo.name);
+        if (rule.preference == VideoCodecPolicy.Preference.SOFTWARE) {
+            VideoDecoder softwareDecoder = this.softwareVideoDecoderFactory.createDecoder(codecInfo);
+            if (softwareDecoder != null) {
+                return softwareDecoder;
+            }
+
+            return createHardwareDecoder(codecInfo);
+        }
+
+        VideoDecoder hardwareDecoder = createHardwareDecoder(codecInfo);
+        VideoDecoder softwareDecoder = this.softwareVideoDecoderFactory.createDecoder(codecInfo);
+        if (hardwareDecoder == null || softwareDecoder == null) {
+            return hardwareDecoder != null ? hardwareDecoder : softwareDecoder;
+        }
+
+        if (rule.minHardwarePixels > 0) {
+            hardwareDecoder = new ResolutionLimitedVideoDecoder(hardwareDecoder, rule.minHardwarePixels);
         }
 
-        return this.softwareVideoDecoderFactory.createDecoder(codecInfo);
+        // Switches to software if the hardware decoder fails.
+        return new VideoDecoderFallback(softwareDecoder, hardwareDecoder);
     }
 
     @Override
-    public VideoCodecInfo[] getSupportedCodecs() {
+    public synchronized VideoCodecInfo[] getSupportedCodecs() {
+        if (supportedCodecs == null) {
+            supportedCodecs = querySupportedCodecs();
+        }
+
+        return supportedCodecs.clone();
+    }
+
+    private VideoCodecInfo[] querySupportedCodecs() {
         List<VideoCodecInfo> codecs = new ArrayList<>();
 
         VideoCodecInfo h264Baseline = null;
         VideoCodecInfo h264High = null;
 
-        VideoCodecInfo[] hwCodecs = this.hardwareVideoDecoderFactory.getSupportedCodecs();
+        VideoCodecInfo[] hwCodecs;
+        if (probeCache != null) {
+            hwCodecs = probeCache.getOrProbe(
+                    HardwareCodecProbeCache.DECODER, this.hardwareVideoDecoderFactory::getSupportedCodecs);
+        } else {
+            hwCodecs = this.hardwareVideoDecoderFactory.getSupportedCodecs();
+        }
         for (VideoCodecInfo hwCodec : hwCodecs) {
             if (hwCodec.name.equalsIgnoreCase("H264")) {
                 String profileLevel = hwCodec.params.get(VideoCodecInfo.H264_FMTP_PROFILE_LEVEL_ID);
@@ -66,7 +140,22 @@ public class H264AndSoftwareVideoDecoderFactory implements VideoDecoderFactory {
         if (h264Baseline != null) {
             codecs.add(h264Baseline);
         }
-        codecs.addAll(Arrays.asList(this.softwareVideoDecoderFactory.getSupportedCodecs()));
+        VideoCodecInfo[] swCodecs = this.softwareVideoDecoderFactory.getSupportedCodecs();
+        codecs.addAll(Arrays.asList(swCodecs));
+
+        // Codecs only available in hardware, if the policy wants them.
+        for (VideoCodecInfo hwCodec : hwCodecs) {
+            if (hwCodec.name.equalsIgnoreCase("H264") || !policy.prefersHardware(hwCodec.name)) {
+                continue;
+            }
+            boolean inSoftware = false;
+            for (VideoCodecInfo swCodec : swCodecs) {
+                inSoftware |= swCodec.name.equalsIgnoreCase(hwCodec.name);
+            }
+            if (!inSoftware) {
+                codecs.add(hwCodec);
+            }
+        }
 
         return codecs.toArray(new VideoCodecInfo[codecs.size()]);
     }
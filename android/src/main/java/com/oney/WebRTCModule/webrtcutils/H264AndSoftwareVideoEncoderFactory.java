@@ -7,45 +7,196 @@ import org.webrtc.HardwareVideoEncoderFactory;
 import org.webrtc.VideoCodecInfo;
 import org.webrtc.VideoEncoder;
 import org.webrtc.VideoEncoderFactory;
+import org.webrtc.VideoEncoderFallback;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * This is a custom video encoder factory for WebRTC which behaves similarly
- * to the default one in iOS. It supports the following codecs:
+ * to the default one in iOS. By default it supports the following codecs:
  *
  * - In hardware: H.264 (high, baseline)
  * - In software: VP8, VP9, AV1
+ *
+ * A {@link VideoCodecPolicy} can select hardware for other codecs too.
  */
 public class H264AndSoftwareVideoEncoderFactory implements VideoEncoderFactory {
     private final VideoEncoderFactory hardwareVideoEncoderFactory;
     private final VideoEncoderFactory softwareVideoEncoderFactory;
 
+    // Enumerating the hardware codecs queries MediaCodecList, which is slow. The result doesn't change
+    // during the lifetime of the process, so it's computed once.
+    @Nullable
+    private VideoCodecInfo[] supportedCodecs;
+    // Upper case names of the codecs in supportedCodecs which are backed by hardware / software.
+    private final Set<String> hardwareCodecNames = new HashSet<>();
+    private final Set<String> softwareCodecNames = new HashSet<>();
+
+    @Nullable
+    private final HardwareCodecProbeCache probeCache;
+    private final VideoCodecPolicy policy;
+
+    @Nullable
+    private volatile CodecTelemetry telemetry;
+
+    @Nullable
+    private volatile FallbackListener fallbackListener;
+
+    /**
+     * Notified when a hardware encoder fails during a call. The reason is one of "encodeErrors", "lowFrameRate"
+     * or "highQp".
+     */
+    public interface FallbackListener {
+        /**
+         * The software encoder took over.
+         */
+        void onEncoderFallback(String codec, String implementationName, String reason);
+
+        /**
+         * The codec has no software encoder (e.g. H.264), so the failing hardware encoder is still used.
+         */
+        void onEncoderDegraded(String codec, String implementationName, String reason);
+    }
+
+    // Forwards to the current fallbackListener, so the encoders created before it was set report too.
+    private final FallbackListener fallbackDispatcher = new FallbackListener() {
+        @Override
+        public void onEncoderFallback(String codec, String implementationName, String reason) {
+            FallbackListener listener = fallbackListener;
+            if (listener != null) {
+                listener.onEncoderFallback(codec, implementationName, reason);
+            }
+        }
+
+        @Override
+        public void onEncoderDegraded(String codec, String implementationName, String reason) {
+            FallbackListener listener = fallbackListener;
+            if (listener != null) {
+                listener.onEncoderDegraded(codec, implementationName, reason);
+            }
+        }
+    };
+
     public H264AndSoftwareVideoEncoderFactory(@Nullable EglBase.Context eglContext) {
+        this(eglContext, null, null);
+    }
+
+    /**
+     * @param probeCache if given, the hardware codecs are read from / persisted to it.
+     * @param policy which codecs to handle in hardware, the default policy if null.
+     */
+    public H264AndSoftwareVideoEncoderFactory(@Nullable EglBase.Context eglContext,
+            @Nullable HardwareCodecProbeCache probeCache, @Nullable VideoCodecPolicy policy) {
         this.hardwareVideoEncoderFactory = new HardwareVideoEncoderFactory(eglContext, false, true);
         this.softwareVideoEncoderFactory = new SoftwareVideoEncoderFactoryProxy();
+        this.probeCache = probeCache;
+        this.policy = policy != null ? policy : new VideoCodecPolicy();
+    }
+
+    public void setFallbackListener(@Nullable FallbackListener fallbackListener) {
+        this.fallbackListener = fallbackListener;
+    }
+
+    /**
+     * Enables per-frame timing of the hardware encoders created from now on.
+     */
+    public void setTelemetry(@Nullable CodecTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Nullable
+    private VideoEncoder createHardwareEncoder(VideoCodecInfo codecInfo) {
+        VideoEncoder encoder = this.hardwareVideoEncoderFactory.createEncoder(codecInfo);
+        CodecTelemetry telemetry = this.telemetry;
+        if (encoder != null && telemetry != null) {
+            return new InstrumentedVideoEncoder(encoder, codecInfo.name, telemetry);
+        }
+
+        return encoder;
     }
 
     @Nullable
     @Override
     public VideoEncoder createEncoder(VideoCodecInfo codecInfo) {
-        if (codecInfo.name.equalsIgnoreCase("H264")) {
-            return this.hardwareVideoEncoderFactory.createEncoder(codecInfo);
+        VideoCodecPolicy.Rule rule = policy.getRule(codecInfo.name);
+        if (rule.preference == VideoCodecPolicy.Preference.SOFTWARE) {
+            VideoEncoder softwareEncoder = this.softwareVideoEncoderFactory.createEncoder(codecInfo);
+            if (softwareEncoder != null) {
+                return softwareEncoder;
+            }
+
+            return createHardwareEncoder(codecInfo);
+        }
+
+        VideoEncoder hardwareEncoder = createHardwareEncoder(codecInfo);
+        VideoEncoder softwareEncoder = this.softwareVideoEncoderFactory.createEncoder(codecInfo);
+        if (hardwareEncoder == null) {
+            return softwareEncoder;
+        }
+        if (softwareEncoder == null) {
+            // Still watched, so the app learns it should move to another codec.
+            return new MonitoredVideoEncoder(hardwareEncoder, codecInfo.name, fallbackDispatcher, false);
+        }
+
+        hardwareEncoder = new MonitoredVideoEncoder(hardwareEncoder, codecInfo.name, fallbackDispatcher, true);
+
+        if (rule.minHardwarePixels > 0) {
+            hardwareEncoder = new ResolutionLimitedVideoEncoder(hardwareEncoder, rule.minHardwarePixels);
         }
 
-        return this.softwareVideoEncoderFactory.createEncoder(codecInfo);
+        // Switches to software if the hardware encoder fails.
+        return new VideoEncoderFallback(softwareEncoder, hardwareEncoder);
     }
 
     @Override
-    public VideoCodecInfo[] getSupportedCodecs() {
+    public synchronized VideoCodecInfo[] getSupportedCodecs() {
+        if (supportedCodecs == null) {
+            supportedCodecs = querySupportedCodecs();
+        }
+
+        return supportedCodecs.clone();
+    }
+
+    /**
+     * Returns the scalability modes supported by the encoder this factory creates for the given codec
+     * (e.g. "VP9"). Spatial / temporal layers need the software encoder, so a codec handled in hardware
+     * reports a single layer.
+     */
+    public synchronized List<String> getScalabilityModes(String codec) {
+        getSupportedCodecs();
+
+        String name = codec.toUpperCase(Locale.ROOT);
+        boolean hardware = hardwareCodecNames.contains(name);
+        boolean software = softwareCodecNames.contains(name);
+        if (hardware && (!software || policy.prefersHardware(name))) {
+            return ScalabilityModes.forHardwareEncoder();
+        }
+        if (software) {
+            return ScalabilityModes.forSoftwareEncoder(name);
+        }
+
+        return Collections.emptyList();
+    }
+
+    private VideoCodecInfo[] querySupportedCodecs() {
         List<VideoCodecInfo> codecs = new ArrayList<>();
 
         VideoCodecInfo h264Baseline = null;
         VideoCodecInfo h264High = null;
 
-        VideoCodecInfo[] hwCodecs = this.hardwareVideoEncoderFactory.getSupportedCodecs();
+        VideoCodecInfo[] hwCodecs;
+        if (probeCache != null) {
+            hwCodecs = probeCache.getOrProbe(
+                    HardwareCodecProbeCache.ENCODER, this.hardwareVideoEncoderFactory::getSupportedCodecs);
+        } else {
+            hwCodecs = this.hardwareVideoEncoderFactory.getSupportedCodecs();
+        }
         for (VideoCodecInfo hwCodec : hwCodecs) {
             if (hwCodec.name.equalsIgnoreCase("H264")) {
                 String profileLevel = hwCodec.params.get(VideoCodecInfo.H264_FMTP_PROFILE_LEVEL_ID);
@@ -66,7 +217,31 @@ public class H264AndSoftwareVideoEncoderFactory implements VideoEncoderFactory {
         if (h264Baseline != null) {
             codecs.add(h264Baseline);
         }
-        codecs.addAll(Arrays.asList(this.softwareVideoEncoderFactory.getSupportedCodecs()));
+        if (h264High != null || h264Baseline != null) {
+            hardwareCodecNames.add("H264");
+        }
+        // The software codecs are passed on as they are, so anything they carry besides the name and
+        // parameters (e.g. scalability modes) is kept.
+        VideoCodecInfo[] swCodecs = this.softwareVideoEncoderFactory.getSupportedCodecs();
+        codecs.addAll(Arrays.asList(swCodecs));
+        for (VideoCodecInfo swCodec : swCodecs) {
+            softwareCodecNames.add(swCodec.name.toUpperCase(Locale.ROOT));
+        }
+
+        // Codecs only available in hardware, if the policy wants them.
+        for (VideoCodecInfo hwCodec : hwCodecs) {
+            if (hwCodec.name.equalsIgnoreCase("H264") || !policy.prefersHardware(hwCodec.name)) {
+                continue;
+            }
+            boolean inSoftware = false;
+            for (VideoCodecInfo swCodec : swCodecs) {
+                inSoftware |= swCodec.name.equalsIgnoreCase(hwCodec.name);
+            }
+            if (!inSoftware) {
+                codecs.add(hwCodec);
+            }
+            hardwareCodecNames.add(hwCodec.name.toUpperCase(Locale.ROOT));
+        }
 
         return codecs.toArray(new VideoCodecInfo[codecs.size()]);
     }
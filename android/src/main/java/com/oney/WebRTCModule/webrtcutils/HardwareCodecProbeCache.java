@@ -0,0 +1,127 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.oney.WebRTCModule.BuildConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.VideoCodecInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Persists the codecs reported by the hardware encoder / decoder factories, which walk MediaCodecList, so
+ * later launches can skip the probe. Results are keyed by the device build fingerprint and the WebRTC
+ * version, so an OS update or a WebRTC upgrade probes again. When a persisted result is used, the probe
+ * still runs once per process on a background thread and refreshes the stored result for the next launch.
+ */
+public class HardwareCodecProbeCache {
+    private static final String TAG = "HardwareCodecProbeCache";
+
+    public static final String ENCODER = "encoder";
+    public static final String DECODER = "decoder";
+
+    private static final String PREFS_NAME = "WebRTCModuleCodecProbe";
+    private static final String KEY_SUFFIX = ".key";
+
+    private final SharedPreferences prefs;
+    private final String key;
+
+    public HardwareCodecProbeCache(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.key = Build.FINGERPRINT + "/" + BuildConfig.WEBRTC_VERSION;
+    }
+
+    /**
+     * Returns the persisted codecs for the given kind ({@link #ENCODER} or {@link #DECODER}) if they were
+     * probed on this build, otherwise runs the probe and persists its result.
+     */
+    public VideoCodecInfo[] getOrProbe(String kind, Supplier<VideoCodecInfo[]> probe) {
+        VideoCodecInfo[] codecs = load(kind);
+        if (codecs == null) {
+            codecs = probe.get();
+            store(kind, codecs);
+            return codecs;
+        }
+
+        Log.d(TAG, "Using persisted " + kind + " codecs");
+
+        Thread revalidation = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+            VideoCodecInfo[] current = load(kind);
+            VideoCodecInfo[] probed = probe.get();
+            if (current == null || !serialize(probed).equals(serialize(current))) {
+                Log.d(TAG, "Persisted " + kind + " codecs are stale, updated for the next launch");
+                store(kind, probed);
+            }
+        }, "CodecProbeRevalidation");
+        revalidation.start();
+
+        return codecs;
+    }
+
+    @Nullable
+    private VideoCodecInfo[] load(String kind) {
+        if (!key.equals(prefs.getString(kind + KEY_SUFFIX, null))) {
+            return null;
+        }
+
+        String json = prefs.getString(kind, null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            JSONArray array = new JSONArray(json);
+            VideoCodecInfo[] codecs = new VideoCodecInfo[array.length()];
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject codec = array.getJSONObject(i);
+                JSONObject paramsObject = codec.getJSONObject("params");
+                Map<String, String> params = new HashMap<>();
+                for (Iterator<String> it = paramsObject.keys(); it.hasNext();) {
+                    String name = it.next();
+                    params.put(name, paramsObject.getString(name));
+                }
+                codecs[i] = new VideoCodecInfo(codec.getString("name"), params);
+            }
+
+            return codecs;
+        } catch (JSONException e) {
+            Log.w(TAG, "Invalid persisted " + kind + " codecs", e);
+            return null;
+        }
+    }
+
+    private void store(String kind, VideoCodecInfo[] codecs) {
+        prefs.edit().putString(kind + KEY_SUFFIX, key).putString(kind, serialize(codecs)).apply();
+    }
+
+    private static String serialize(VideoCodecInfo[] codecs) {
+        JSONArray array = new JSONArray();
+        try {
+            for (VideoCodecInfo codec : codecs) {
+                JSONObject codecObject = new JSONObject();
+                codecObject.put("name", codec.name);
+                codecObject.put("params", new JSONObject(codec.params));
+                array.put(codecObject);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to serialize codecs " + Arrays.toString(codecs), e);
+        }
+
+        return array.toString();
+    }
+}
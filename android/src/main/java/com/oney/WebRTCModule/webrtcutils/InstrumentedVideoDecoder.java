@@ -0,0 +1,69 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import org.webrtc.EncodedImage;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoDecoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records decode latency and received keyframes into {@link CodecTelemetry}.
+ */
+class InstrumentedVideoDecoder implements VideoDecoder {
+    private static final int MAX_PENDING_FRAMES = 64;
+
+    private final VideoDecoder decoder;
+    private final String codec;
+    private final CodecTelemetry telemetry;
+
+    // Capture timestamp -> System.nanoTime() when the frame was passed to the decoder. Only used when the
+    // decoder doesn't report the decode time itself.
+    private final Map<Long, Long> pendingFrames = new ConcurrentHashMap<>();
+    private volatile CodecTelemetry.Stats stats;
+
+    InstrumentedVideoDecoder(VideoDecoder decoder, String codec, CodecTelemetry telemetry) {
+        this.decoder = decoder;
+        this.codec = codec;
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public VideoCodecStatus initDecode(Settings settings, Callback decodeCallback) {
+        stats = telemetry.getStats(false, codec, decoder.getImplementationName());
+        pendingFrames.clear();
+
+        return decoder.initDecode(settings, (frame, decodeTimeMs, qp) -> {
+            Long start = pendingFrames.remove(frame.getTimestampNs());
+            if (decodeTimeMs != null) {
+                stats.onLatency(decodeTimeMs);
+            } else if (start != null) {
+                stats.onLatency((System.nanoTime() - start) / 1e6);
+            }
+            decodeCallback.onDecodedFrame(frame, decodeTimeMs, qp);
+        });
+    }
+
+    @Override
+    public VideoCodecStatus release() {
+        pendingFrames.clear();
+        return decoder.release();
+    }
+
+    @Override
+    public VideoCodecStatus decode(EncodedImage frame, DecodeInfo info) {
+        long now = System.nanoTime();
+        if (pendingFrames.size() >= MAX_PENDING_FRAMES) {
+            pendingFrames.clear();
+        }
+        pendingFrames.put(frame.captureTimeNs, now);
+        stats.onFrame(now, frame.buffer.remaining(), frame.frameType == EncodedImage.FrameType.VideoFrameKey);
+
+        return decoder.decode(frame, info);
+    }
+
+    @Override
+    public String getImplementationName() {
+        return decoder.getImplementationName();
+    }
+}
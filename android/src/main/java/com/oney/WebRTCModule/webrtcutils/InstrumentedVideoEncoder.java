@@ -0,0 +1,112 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import org.webrtc.EncodedImage;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoFrame;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records encode latency, keyframes and produced vs. target bitrate into {@link CodecTelemetry}.
+ */
+class InstrumentedVideoEncoder implements VideoEncoder {
+    // Frames the encoder dropped never come back, don't let their start times pile up.
+    private static final int MAX_PENDING_FRAMES = 64;
+
+    private final VideoEncoder encoder;
+    private final String codec;
+    private final CodecTelemetry telemetry;
+
+    // Capture timestamp -> System.nanoTime() when the frame was passed to the encoder.
+    private final Map<Long, Long> pendingFrames = new ConcurrentHashMap<>();
+    private volatile CodecTelemetry.Stats stats;
+    private long targetBps;
+
+    InstrumentedVideoEncoder(VideoEncoder encoder, String codec, CodecTelemetry telemetry) {
+        this.encoder = encoder;
+        this.codec = codec;
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public boolean isHardwareEncoder() {
+        return encoder.isHardwareEncoder();
+    }
+
+    @Override
+    public VideoCodecStatus initEncode(Settings settings, Callback encodeCallback) {
+        setTargetBitrate(0);
+        stats = telemetry.getStats(true, codec, encoder.getImplementationName());
+        pendingFrames.clear();
+
+        return encoder.initEncode(settings, (frame, info) -> {
+            long now = System.nanoTime();
+            Long start = pendingFrames.remove(frame.captureTimeNs);
+            CodecTelemetry.Stats stats = this.stats;
+            stats.onFrame(now, frame.buffer.remaining(), frame.frameType == EncodedImage.FrameType.VideoFrameKey);
+            if (start != null) {
+                stats.onLatency((now - start) / 1e6);
+            }
+            encodeCallback.onEncodedFrame(frame, info);
+        });
+    }
+
+    @Override
+    public VideoCodecStatus release() {
+        setTargetBitrate(0);
+        pendingFrames.clear();
+        return encoder.release();
+    }
+
+    @Override
+    public VideoCodecStatus encode(VideoFrame frame, EncodeInfo info) {
+        if (pendingFrames.size() >= MAX_PENDING_FRAMES) {
+            pendingFrames.clear();
+        }
+        pendingFrames.put(frame.getTimestampNs(), System.nanoTime());
+
+        return encoder.encode(frame, info);
+    }
+
+    @Override
+    public VideoCodecStatus setRateAllocation(BitrateAllocation allocation, int framerate) {
+        setTargetBitrate(allocation.getSum());
+        return encoder.setRateAllocation(allocation, framerate);
+    }
+
+    @Override
+    public VideoCodecStatus setRates(RateControlParameters rcParameters) {
+        setTargetBitrate(rcParameters.bitrate.getSum());
+        return encoder.setRates(rcParameters);
+    }
+
+    private synchronized void setTargetBitrate(long bps) {
+        CodecTelemetry.Stats stats = this.stats;
+        if (stats != null && bps != targetBps) {
+            stats.onTargetBitrateChanged(System.nanoTime(), bps - targetBps);
+        }
+        targetBps = bps;
+    }
+
+    @Override
+    public ScalingSettings getScalingSettings() {
+        return encoder.getScalingSettings();
+    }
+
+    @Override
+    public ResolutionBitrateLimits[] getResolutionBitrateLimits() {
+        return encoder.getResolutionBitrateLimits();
+    }
+
+    @Override
+    public String getImplementationName() {
+        return encoder.getImplementationName();
+    }
+
+    @Override
+    public EncoderInfo getEncoderInfo() {
+        return encoder.getEncoderInfo();
+    }
+}
@@ -0,0 +1,235 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoFrame;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a hardware encoder and watches it for sustained failures: repeated encode errors, too few encoded
+ * frames for the frames it's given, or a QP stuck near the maximum. When that happens it returns
+ * FALLBACK_SOFTWARE, which makes the enclosing {@link org.webrtc.VideoEncoderFallback} switch to its
+ * software encoder in place, without renegotiation. The switch is permanent for this encoder instance.
+ *
+ * Codecs without a software encoder (H.264) can't fall back in place: the encoder is only reported as degraded,
+ * once, and the hardware encoder keeps being used. It's up to the app to renegotiate another codec.
+ */
+class MonitoredVideoEncoder implements VideoEncoder {
+    private static final String TAG = "MonitoredVideoEncoder";
+
+    private static final int MAX_CONSECUTIVE_ERRORS = 5;
+
+    // The first frames after (re)initialization are not representative.
+    private static final long WARMUP_MS = 2000;
+    private static final long WINDOW_MS = 5000;
+    // Windows in a row which need to look bad before falling back.
+    private static final int BAD_WINDOWS = 2;
+
+    private static final double MIN_INPUT_FPS = 5;
+    private static final double MIN_OUTPUT_RATIO = 0.25;
+
+    private final VideoEncoder encoder;
+    private final String codec;
+    private final H264AndSoftwareVideoEncoderFactory.FallbackListener listener;
+    // Whether this encoder is wrapped in a VideoEncoderFallback.
+    private final boolean canFallBack;
+    private final int maxQp;
+
+    // Encode thread state.
+    private int consecutiveErrors;
+    private long windowStart;
+    private int inputFrames;
+    private int lowFrameRateWindows;
+    private int highQpWindows;
+    private volatile boolean failed;
+
+    // Written from the encoder output thread.
+    private final AtomicInteger outputFrames = new AtomicInteger();
+    private final AtomicInteger qpFrames = new AtomicInteger();
+    private final AtomicLong qpSum = new AtomicLong();
+
+    MonitoredVideoEncoder(VideoEncoder encoder,
+            String codec,
+            H264AndSoftwareVideoEncoderFactory.FallbackListener listener,
+            boolean canFallBack) {
+        this.encoder = encoder;
+        this.codec = codec;
+        this.listener = listener;
+        this.canFallBack = canFallBack;
+        this.maxQp = highQpThreshold(codec);
+    }
+
+    /**
+     * QP above which the output is considered broken, or 0 if unknown for the codec.
+     */
+    private static int highQpThreshold(String codec) {
+        switch (codec.toUpperCase(Locale.ROOT)) {
+            case "H264":
+                return 45; // Out of 51.
+            case "VP8":
+                return 120; // Out of 127.
+            case "VP9":
+                return 240; // Out of 255.
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public boolean isHardwareEncoder() {
+        return encoder.isHardwareEncoder();
+    }
+
+    @Override
+    public VideoCodecStatus initEncode(Settings settings, Callback encodeCallback) {
+        if (failed) {
+            return canFallBack ? VideoCodecStatus.FALLBACK_SOFTWARE : encoder.initEncode(settings, encodeCallback);
+        }
+
+        resetWindow(SystemClock.elapsedRealtime() + WARMUP_MS);
+        consecutiveErrors = 0;
+        lowFrameRateWindows = 0;
+        highQpWindows = 0;
+
+        return encoder.initEncode(settings, (frame, info) -> {
+            outputFrames.incrementAndGet();
+            Integer qp = frame.qp;
+            if (qp != null) {
+                qpFrames.incrementAndGet();
+                qpSum.addAndGet(qp);
+            }
+            encodeCallback.onEncodedFrame(frame, info);
+        });
+    }
+
+    @Override
+    public VideoCodecStatus release() {
+        return encoder.release();
+    }
+
+    @Override
+    public VideoCodecStatus encode(VideoFrame frame, EncodeInfo info) {
+        if (failed) {
+            return canFallBack ? VideoCodecStatus.FALLBACK_SOFTWARE : encoder.encode(frame, info);
+        }
+
+        VideoCodecStatus status = encoder.encode(frame, info);
+        if (status == VideoCodecStatus.OK || status == VideoCodecStatus.NO_OUTPUT) {
+            consecutiveErrors = 0;
+        } else if (++consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+            return fail("encodeErrors", status);
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (now < windowStart) {
+            // Warming up.
+            return status;
+        }
+
+        inputFrames++;
+        if (now - windowStart >= WINDOW_MS) {
+            String reason = evaluateWindow(now - windowStart);
+            resetWindow(now);
+            if (reason != null) {
+                return fail(reason, status);
+            }
+        }
+
+        return status;
+    }
+
+    @Nullable
+    private String evaluateWindow(long durationMs) {
+        double inputFps = inputFrames * 1000.0 / durationMs;
+        int outputs = outputFrames.get();
+        if (inputFps >= MIN_INPUT_FPS && outputs < inputFrames * MIN_OUTPUT_RATIO) {
+            lowFrameRateWindows++;
+        } else {
+            lowFrameRateWindows = 0;
+        }
+
+        int qpCount = qpFrames.get();
+        if (maxQp > 0 && qpCount > 0 && qpSum.get() / qpCount > maxQp) {
+            highQpWindows++;
+        } else {
+            highQpWindows = 0;
+        }
+
+        if (lowFrameRateWindows >= BAD_WINDOWS) {
+            return "lowFrameRate";
+        }
+        if (highQpWindows >= BAD_WINDOWS) {
+            return "highQp";
+        }
+
+        return null;
+    }
+
+    private void resetWindow(long start) {
+        windowStart = start;
+        inputFrames = 0;
+        outputFrames.set(0);
+        qpFrames.set(0);
+        qpSum.set(0);
+    }
+
+    /**
+     * @param status the status of the current encode call, returned if there is no fallback.
+     */
+    private VideoCodecStatus fail(String reason, VideoCodecStatus status) {
+        failed = true;
+
+        String implementationName = encoder.getImplementationName();
+        if (canFallBack) {
+            Log.w(TAG, "Falling back to software for " + codec + " (" + implementationName + "): " + reason);
+        } else {
+            Log.w(TAG, "No software fallback for " + codec + " (" + implementationName + "): " + reason);
+        }
+
+        if (canFallBack) {
+            listener.onEncoderFallback(codec, implementationName, reason);
+            return VideoCodecStatus.FALLBACK_SOFTWARE;
+        }
+
+        listener.onEncoderDegraded(codec, implementationName, reason);
+        return status;
+    }
+
+    @Override
+    public VideoCodecStatus setRateAllocation(BitrateAllocation allocation, int framerate) {
+        return encoder.setRateAllocation(allocation, framerate);
+    }
+
+    @Override
+    public VideoCodecStatus setRates(RateControlParameters rcParameters) {
+        return encoder.setRates(rcParameters);
+    }
+
+    @Override
+    public ScalingSettings getScalingSettings() {
+        return encoder.getScalingSettings();
+    }
+
+    @Override
+    public ResolutionBitrateLimits[] getResolutionBitrateLimits() {
+        return encoder.getResolutionBitrateLimits();
+    }
+
+    @Override
+    public String getImplementationName() {
+        return encoder.getImplementationName();
+    }
+
+    @Override
+    public EncoderInfo getEncoderInfo() {
+        return encoder.getEncoderInfo();
+    }
+}
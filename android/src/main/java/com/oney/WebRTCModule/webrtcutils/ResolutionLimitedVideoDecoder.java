@@ -0,0 +1,42 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import org.webrtc.EncodedImage;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoDecoder;
+
+/**
+ * Decoder counterpart of {@link ResolutionLimitedVideoEncoder}.
+ */
+class ResolutionLimitedVideoDecoder implements VideoDecoder {
+    private final VideoDecoder decoder;
+    private final int minPixels;
+
+    ResolutionLimitedVideoDecoder(VideoDecoder decoder, int minPixels) {
+        this.decoder = decoder;
+        this.minPixels = minPixels;
+    }
+
+    @Override
+    public VideoCodecStatus initDecode(Settings settings, Callback decodeCallback) {
+        if (settings.width * settings.height < minPixels) {
+            return VideoCodecStatus.FALLBACK_SOFTWARE;
+        }
+
+        return decoder.initDecode(settings, decodeCallback);
+    }
+
+    @Override
+    public VideoCodecStatus release() {
+        return decoder.release();
+    }
+
+    @Override
+    public VideoCodecStatus decode(EncodedImage frame, DecodeInfo info) {
+        return decoder.decode(frame, info);
+    }
+
+    @Override
+    public String getImplementationName() {
+        return decoder.getImplementationName();
+    }
+}
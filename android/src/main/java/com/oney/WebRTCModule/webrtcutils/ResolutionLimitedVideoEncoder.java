@@ -0,0 +1,73 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoFrame;
+
+/**
+ * Wraps a (hardware) encoder, refusing to initialize it for resolutions below a threshold. The refusal
+ * makes the enclosing {@link org.webrtc.VideoEncoderFallback} switch to its software encoder.
+ */
+class ResolutionLimitedVideoEncoder implements VideoEncoder {
+    private final VideoEncoder encoder;
+    private final int minPixels;
+
+    ResolutionLimitedVideoEncoder(VideoEncoder encoder, int minPixels) {
+        this.encoder = encoder;
+        this.minPixels = minPixels;
+    }
+
+    @Override
+    public boolean isHardwareEncoder() {
+        return encoder.isHardwareEncoder();
+    }
+
+    @Override
+    public VideoCodecStatus initEncode(Settings settings, Callback encodeCallback) {
+        if (settings.width * settings.height < minPixels) {
+            return VideoCodecStatus.FALLBACK_SOFTWARE;
+        }
+
+        return encoder.initEncode(settings, encodeCallback);
+    }
+
+    @Override
+    public VideoCodecStatus release() {
+        return encoder.release();
+    }
+
+    @Override
+    public VideoCodecStatus encode(VideoFrame frame, EncodeInfo info) {
+        return encoder.encode(frame, info);
+    }
+
+    @Override
+    public VideoCodecStatus setRateAllocation(BitrateAllocation allocation, int framerate) {
+        return encoder.setRateAllocation(allocation, framerate);
+    }
+
+    @Override
+    public VideoCodecStatus setRates(RateControlParameters rcParameters) {
+        return encoder.setRates(rcParameters);
+    }
+
+    @Override
+    public ScalingSettings getScalingSettings() {
+        return encoder.getScalingSettings();
+    }
+
+    @Override
+    public ResolutionBitrateLimits[] getResolutionBitrateLimits() {
+        return encoder.getResolutionBitrateLimits();
+    }
+
+    @Override
+    public String getImplementationName() {
+        return encoder.getImplementationName();
+    }
+
+    @Override
+    public EncoderInfo getEncoderInfo() {
+        return encoder.getEncoderInfo();
+    }
+}
@@ -0,0 +1,74 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The scalability modes (https://www.w3.org/TR/webrtc-svc/) the bundled video encoders support. The software
+ * VP9 and AV1 encoders support spatial and temporal layers, the others only temporal layers. Hardware encoders
+ * produce a single layer.
+ */
+public class ScalabilityModes {
+    private static final List<String> SINGLE_LAYER = Collections.singletonList("L1T1");
+
+    private static final List<String> TEMPORAL = Collections.unmodifiableList(Arrays.asList("L1T1", "L1T2", "L1T3"));
+
+    private static final List<String> SPATIAL_AND_TEMPORAL = Collections.unmodifiableList(Arrays.asList("L1T1",
+            "L1T2",
+            "L1T3",
+            "L2T1",
+            "L2T1h",
+            "L2T1_KEY",
+            "L2T2",
+            "L2T2h",
+            "L2T2_KEY",
+            "L2T2_KEY_SHIFT",
+            "L2T3",
+            "L2T3h",
+            "L2T3_KEY",
+            "L3T1",
+            "L3T1h",
+            "L3T1_KEY",
+            "L3T2",
+            "L3T2h",
+            "L3T2_KEY",
+            "L3T3",
+            "L3T3h",
+            "L3T3_KEY",
+            "S2T1",
+            "S2T1h",
+            "S2T2",
+            "S2T2h",
+            "S2T3",
+            "S2T3h",
+            "S3T1",
+            "S3T1h",
+            "S3T2",
+            "S3T2h",
+            "S3T3",
+            "S3T3h"));
+
+    private ScalabilityModes() {}
+
+    /**
+     * Returns the modes of the software encoder for the given codec (e.g. "VP9"), empty if unknown.
+     */
+    public static List<String> forSoftwareEncoder(String codec) {
+        switch (codec.toUpperCase(Locale.ROOT)) {
+            case "VP9":
+            case "AV1":
+                return SPATIAL_AND_TEMPORAL;
+            case "VP8":
+            case "H264":
+                return TEMPORAL;
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    public static List<String> forHardwareEncoder() {
+        return SINGLE_LAYER;
+    }
+}
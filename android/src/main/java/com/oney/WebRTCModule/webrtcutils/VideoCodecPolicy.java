@@ -0,0 +1,68 @@
+package com.oney.WebRTCModule.webrtcutils;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Chooses between the hardware and software implementation of each video codec, used by
+ * {@link H264AndSoftwareVideoEncoderFactory} and {@link H264AndSoftwareVideoDecoderFactory}.
+ *
+ * When hardware is preferred but no hardware implementation exists, the software one is used. When both
+ * exist, the hardware one is wrapped so WebRTC falls back to software if it fails to initialize or
+ * errors out. A minimum resolution can be given, below which the software implementation is used.
+ *
+ * The default policy uses hardware for H.264 and software for everything else.
+ */
+public class VideoCodecPolicy {
+    public enum Preference { HARDWARE, SOFTWARE }
+
+    public static class Rule {
+        public final Preference preference;
+
+        /**
+         * Frames with fewer pixels than this are handled in software, 0 for no limit.
+         */
+        public final int minHardwarePixels;
+
+        public Rule(Preference preference, int minHardwarePixels) {
+            this.preference = preference;
+            this.minHardwarePixels = minHardwarePixels;
+        }
+    }
+
+    private static final Rule DEFAULT_H264_RULE = new Rule(Preference.HARDWARE, 0);
+    private static final Rule DEFAULT_RULE = new Rule(Preference.SOFTWARE, 0);
+
+    private final Map<String, Rule> rules = new HashMap<>();
+
+    /**
+     * Sets the preference for the given codec (e.g. "VP9"), with no resolution limit.
+     */
+    public VideoCodecPolicy set(String codec, Preference preference) {
+        return set(codec, preference, 0);
+    }
+
+    /**
+     * Sets the preference for the given codec (e.g. "VP9"). When hardware is preferred, it's only used for
+     * frames of at least {@code minHardwarePixels} pixels.
+     */
+    public VideoCodecPolicy set(String codec, Preference preference, int minHardwarePixels) {
+        rules.put(codec.toUpperCase(Locale.ROOT), new Rule(preference, minHardwarePixels));
+        return this;
+    }
+
+    public Rule getRule(String codec) {
+        String name = codec.toUpperCase(Locale.ROOT);
+        Rule rule = rules.get(name);
+        if (rule != null) {
+            return rule;
+        }
+
+        return name.equals("H264") ? DEFAULT_H264_RULE : DEFAULT_RULE;
+    }
+
+    public boolean prefersHardware(String codec) {
+        return getRule(codec).preference == Preference.HARDWARE;
+    }
+}
@@ -115,6 +115,9 @@
         if (encoding.scaleResolutionDownBy) {
             encodingDictionary[@"scaleResolutionDownBy"] = encoding.scaleResolutionDownBy;
         }
+        if (encoding.scalabilityMode) {
+            encodingDictionary[@"scalabilityMode"] = encoding.scalabilityMode;
+        }
 
         [encodings addObject:encodingDictionary];
     }
@@ -266,6 +269,9 @@
     if (params[@"scaleResolutionDownBy"] != nil) {
         [encoding setScaleResolutionDownBy:(NSNumber *)params[@"scaleResolutionDownBy"]];
     }
+    if (params[@"scalabilityMode"] != nil) {
+        [encoding setScalabilityMode:(NSString *)params[@"scalabilityMode"]];
+    }
 
     return encoding;
 }
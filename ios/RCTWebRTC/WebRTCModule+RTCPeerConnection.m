@@ -179,7 +179,7 @@ RCT_EXPORT_METHOD(peerConnectionCreateOffer
     RTCMediaConstraints *constraints = [[RTCMediaConstraints alloc] initWithMandatoryConstraints:options
                                                                              optionalConstraints:nil];
 
-    NSMutableArray *receiversIds = [NSMutableArray new];
+    NSMutableSet *receiversIds = [NSMutableSet new];
     for (RTCRtpTransceiver *transceiver in peerConnection.transceivers) {
         [receiversIds addObject:transceiver.receiver.receiverId];
     }
@@ -295,7 +295,7 @@ RCT_EXPORT_METHOD(peerConnectionSetRemoteDescription
         return;
     }
 
-    NSMutableArray *receiversIds = [NSMutableArray new];
+    NSMutableSet *receiversIds = [NSMutableSet new];
     for (RTCRtpTransceiver *transceiver in peerConnection.transceivers) {
         [receiversIds addObject:transceiver.receiver.receiverId];
     }
@@ -256,10 +256,13 @@ RCT_EXPORT_BLOCKING_SYNCHRONOUS_METHOD(transceiverSetCodecPreferences
         encoding.minBitrateBps = encodingUpdate[@"minBitrate"];
         encoding.maxFramerate = encodingUpdate[@"maxFramerate"];
         encoding.scaleResolutionDownBy = encodingUpdate[@"scaleResolutionDownBy"];
+        encoding.scalabilityMode = encodingUpdate[@"scalabilityMode"];
     }
 
-    if ([options objectForKey:@"degradationPreference"]) {
-        params.degradationPreference = [options objectForKey:@"degradationPreference"];
+    id degradationPreference = [options objectForKey:@"degradationPreference"];
+    if (degradationPreference) {
+        // null resets the preference.
+        params.degradationPreference = degradationPreference == [NSNull null] ? nil : degradationPreference;
     }
 
     return params;
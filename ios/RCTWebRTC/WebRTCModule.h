@@ -30,6 +30,14 @@ static NSString *const kEventAudioDeviceModuleEngineDidStop = @"audioDeviceModul
 static NSString *const kEventAudioDeviceModuleEngineDidDisable = @"audioDeviceModuleEngineDidDisable";
 static NSString *const kEventAudioDeviceModuleEngineWillRelease = @"audioDeviceModuleEngineWillRelease";
 static NSString *const kEventAudioDeviceModuleDevicesUpdated = @"audioDeviceModuleDevicesUpdated";
+// Only sent on Android, declared so the JS side can listen for them on every platform.
+static NSString *const kEventVideoEncoderFallback = @"videoEncoderFallback";
+static NSString *const kEventVideoEncoderDegraded = @"videoEncoderDegraded";
+static NSString *const kEventSenderLayersChanged = @"senderLayersChanged";
+static NSString *const kEventSenderQualityLimitationChanged = @"senderQualityLimitationChanged";
+static NSString *const kEventVideoTrackViewSizeChanged = @"videoTrackViewSizeChanged";
+static NSString *const kEventMediaDevicesOnDeviceChange = @"mediaDevicesOnDeviceChange";
+static NSString *const kEventMediaStreamTrackSettingsChanged = @"mediaStreamTrackSettingsChanged";
 
 @class AudioDeviceModuleObserver;
 
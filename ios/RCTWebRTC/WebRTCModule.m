@@ -150,7 +150,14 @@ RCT_EXPORT_MODULE();
         kEventAudioDeviceModuleEngineDidStop,
         kEventAudioDeviceModuleEngineDidDisable,
         kEventAudioDeviceModuleEngineWillRelease,
-        kEventAudioDeviceModuleDevicesUpdated
+        kEventAudioDeviceModuleDevicesUpdated,
+        kEventVideoEncoderFallback,
+        kEventVideoEncoderDegraded,
+        kEventSenderLayersChanged,
+        kEventSenderQualityLimitationChanged,
+        kEventVideoTrackViewSizeChanged,
+        kEventMediaDevicesOnDeviceChange,
+        kEventMediaStreamTrackSettingsChanged
     ];
 }
 
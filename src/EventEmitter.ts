@@ -23,7 +23,14 @@ const NATIVE_EVENTS = [
     'dataChannelDidChangeBufferedAmount',
     'mediaStreamTrackMuteChanged',
     'mediaStreamTrackEnded',
+    'mediaDevicesOnDeviceChange',
     'frameCryptionStateChanged',
+    'videoEncoderFallback',
+    'videoEncoderDegraded',
+    'senderLayersChanged',
+    'senderQualityLimitationChanged',
+    'videoTrackViewSizeChanged',
+    'mediaStreamTrackSettingsChanged',
     'audioDeviceModuleEngineCreated',
     'audioDeviceModuleEngineWillEnable',
     'audioDeviceModuleEngineWillStart',
@@ -1,5 +1,6 @@
 import { NativeModules } from 'react-native';
 
+import { addListener } from './EventEmitter';
 import getDisplayMedia from './getDisplayMedia';
 import getUserMedia, { Constraints } from './getUserMedia';
 import { Event, EventTarget, getEventAttributeValue, setEventAttributeValue } from './vendor/event-target-shim';
@@ -11,6 +12,14 @@ type MediaDevicesEventMap = {
 }
 
 class MediaDevices extends EventTarget<MediaDevicesEventMap> {
+    constructor() {
+        super();
+
+        addListener(this, 'mediaDevicesOnDeviceChange', () => {
+            this.dispatchEvent(new Event('devicechange'));
+        });
+    }
+
     get ondevicechange() {
         return getEventAttributeValue(this, 'devicechange');
     }
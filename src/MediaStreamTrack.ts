@@ -1,4 +1,4 @@
-import { NativeModules } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 
 import { MediaTrackConstraints } from './Constraints';
 import { addListener, removeListener } from './EventEmitter';
@@ -36,6 +36,57 @@ type MediaStreamTrackEventMap = {
     ended: Event<'ended'>;
     mute: Event<'mute'>;
     unmute: Event<'unmute'>;
+    viewsizechange: Event<'viewsizechange'>;
+}
+
+/**
+ * How long camera switches took, from the request to the first frame of the new camera. Android only.
+ */
+export type CameraSwitchStats = {
+    switches: number;
+    standbySwitches: number;
+    lastLatencyMs?: number;
+    averageLatencyMs?: number;
+    standbyDeviceId: string | null;
+}
+
+/**
+ * Bounds and tuning of the adaptive capture of a camera track. Android only.
+ */
+export type AdaptiveCaptureOptions = {
+    minWidth?: number;
+    minHeight?: number;
+    minFrameRate?: number;
+    intervalMs?: number;
+    /**
+     * CPU limited polls in a row before lowering the format, defaults to 2. The CPU limitation is also ignored
+     * for as many polls after each format change.
+     */
+    downgradePolls?: number;
+    upgradePolls?: number;
+    /** Whether to follow the thermal status of the device (Android 10+), defaults to true. */
+    thermal?: boolean;
+    /** Whether to follow CPU limitations of the encoders sending the track, defaults to true. */
+    cpu?: boolean;
+}
+
+/**
+ * Tuning of the dropping of unchanged screen capture frames. Android only.
+ */
+export type StaticContentDroppingOptions = {
+    /** The frame rate kept while the screen content doesn't change, defaults to 1. */
+    idleFrameRate?: number;
+    /** How long frames keep flowing at the capture rate after a change, defaults to 1000ms. */
+    settleMs?: number;
+}
+
+/**
+ * The largest size, in pixels, at which a video track is rendered by the RTCViews showing it, 0x0 when
+ * none does. Android only.
+ */
+export type MediaStreamTrackViewSize = {
+    width: number;
+    height: number;
 }
 
 export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventMap> {
@@ -45,6 +96,7 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
     _muted: boolean;
     _peerConnectionId: number;
     _readyState: MediaStreamTrackState;
+    _viewSize: MediaStreamTrackViewSize | null;
 
     readonly id: string;
     readonly kind: string;
@@ -60,6 +112,7 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
         this._muted = false;
         this._peerConnectionId = info.peerConnectionId;
         this._readyState = info.readyState;
+        this._viewSize = null;
 
         this.id = info.id;
         this.kind = info.kind;
@@ -94,6 +147,14 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
         setEventAttributeValue(this, 'unmute', value);
     }
 
+    get onviewsizechange() {
+        return getEventAttributeValue(this, 'viewsizechange');
+    }
+
+    set onviewsizechange(value) {
+        setEventAttributeValue(this, 'viewsizechange', value);
+    }
+
     get enabled(): boolean {
         return this._enabled;
     }
@@ -116,6 +177,14 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
         return this._muted;
     }
 
+    /**
+     * Non-standard: the size at which the track is rendered, or null if it was never reported. Can be used
+     * to request a matching resolution from the sender, e.g. a lower simulcast layer for a thumbnail.
+     */
+    get viewSize(): MediaStreamTrackViewSize | null {
+        return this._viewSize ? { ...this._viewSize } : null;
+    }
+
     get readyState(): string {
         return this._readyState;
     }
@@ -151,6 +220,124 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
         this.applyConstraints(constraints);
     }
 
+    /**
+     * Private / custom API, Android only: keeps another camera open at a low resolution next to the one
+     * captured from, so switching to it (through {@link _switchToStandbyCamera} or applyConstraints) doesn't
+     * leave a gap in the video. Without a deviceId, the first camera facing the other way is used. Rejects if
+     * the device can't capture from both cameras at once. Does nothing on other platforms.
+     */
+    async _setCameraStandby(enabled: boolean, deviceId?: string): Promise<void> {
+        if (this.remote) {
+            throw new Error('Not implemented for remote tracks');
+        }
+
+        if (this.kind !== 'video') {
+            throw new Error('Only implemented for video tracks');
+        }
+
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        await WebRTCModule.mediaStreamTrackSetCameraStandby(this.id, enabled, deviceId ?? null);
+    }
+
+    /**
+     * Private / custom API, Android only: switches to the standby camera, see {@link _setCameraStandby}. The
+     * camera captured from until now becomes the standby one. Does nothing on other platforms, where there
+     * is never a standby camera.
+     */
+    async _switchToStandbyCamera(): Promise<void> {
+        if (this.remote) {
+            throw new Error('Not implemented for remote tracks');
+        }
+
+        if (this.kind !== 'video') {
+            throw new Error('Only implemented for video tracks');
+        }
+
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        this._settings = await WebRTCModule.mediaStreamTrackSwitchToStandbyCamera(this.id);
+    }
+
+    /**
+     * Private / custom API, Android only: how long the camera switches of this track took.
+     */
+    async _getCameraSwitchStats(): Promise<CameraSwitchStats | null> {
+        if (this.remote || this.kind !== 'video' || Platform.OS !== 'android') {
+            return null;
+        }
+
+        return WebRTCModule.mediaStreamTrackGetCameraSwitchStats(this.id);
+    }
+
+    /**
+     * Private / custom API, Android only: lowers the capture resolution and frame rate, down to the given
+     * bounds, while the device is hot or the encoders sending the track are limited by the CPU, and raises
+     * them back afterwards. getSettings() follows the adapted format. Pass null to capture in the format of the
+     * constraints again.
+     */
+    async _setAdaptiveCapture(options: AdaptiveCaptureOptions | null): Promise<void> {
+        if (this.remote) {
+            throw new Error('Not implemented for remote tracks');
+        }
+
+        if (this.kind !== 'video') {
+            throw new Error('Only implemented for video tracks');
+        }
+
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        this._settings = await WebRTCModule.mediaStreamTrackSetAdaptiveCapture(this.id, options);
+    }
+
+    /**
+     * Private / custom API: limits the frame rate of a local video track by dropping captured frames, without
+     * reconfiguring the camera, e.g. for a low frame rate recording or fallback. Pass null to remove the limit.
+     * Android only.
+     */
+    async _setMaxFrameRate(maxFrameRate: number | null): Promise<void> {
+        if (this.remote) {
+            throw new Error('Not implemented for remote tracks');
+        }
+
+        if (this.kind !== 'video') {
+            throw new Error('Only implemented for video tracks');
+        }
+
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        await WebRTCModule.mediaStreamTrackSetMaxFrameRate(this.id, maxFrameRate ?? 0);
+    }
+
+    /**
+     * Private / custom API, Android only: for a screen capture track, drops the frames which don't change the
+     * screen content (e.g. while a slide is presented) down to an idle frame rate, so they aren't encoded.
+     * Pass null to deliver every frame again.
+     */
+    async _setStaticContentDropping(options: StaticContentDroppingOptions | null): Promise<void> {
+        if (this.remote) {
+            throw new Error('Not implemented for remote tracks');
+        }
+
+        if (this.kind !== 'video') {
+            throw new Error('Only implemented for video tracks');
+        }
+
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        await WebRTCModule.mediaStreamTrackSetStaticContentDropping(this.id, options);
+    }
+
     _setVideoEffects(names: string[]) {
         if (this.remote) {
             throw new Error('Not implemented for remote tracks');
@@ -182,6 +369,11 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
         this.dispatchEvent(new Event(muted ? 'mute' : 'unmute'));
     }
 
+    _setViewSizeInternal(width: number, height: number) {
+        this._viewSize = { width, height };
+        this.dispatchEvent(new Event('viewsizechange'));
+    }
+
     /**
      * Custom API for setting the volume on an individual audio track.
      *
@@ -245,6 +437,22 @@ export default class MediaStreamTrack extends EventTarget<MediaStreamTrackEventM
 
             this.dispatchEvent(new Event('ended'));
         });
+
+        addListener(this, 'videoTrackViewSizeChanged', (ev: any) => {
+            if (ev.trackId !== this.id) {
+                return;
+            }
+
+            this._setViewSizeInternal(ev.width, ev.height);
+        });
+
+        addListener(this, 'mediaStreamTrackSettingsChanged', (ev: any) => {
+            if (ev.trackId !== this.id) {
+                return;
+            }
+
+            this._settings = ev.settings;
+        });
     }
 
     release(): void {
@@ -0,0 +1,19 @@
+export interface RTCCertificateInfo {
+    keyType: 'RSA' | 'ECDSA';
+    expires: number;
+}
+
+/**
+ * A DTLS certificate created with RTCPeerConnection.generateCertificate. The
+ * certificate itself stays in native, this is a handle which can be passed in
+ * RTCConfiguration.certificates.
+ */
+export default class RTCCertificate {
+    readonly keyType: 'RSA' | 'ECDSA';
+    readonly expires: number;
+
+    constructor(info: RTCCertificateInfo) {
+        this.keyType = info.keyType;
+        this.expires = info.expires;
+    }
+}
@@ -1,4 +1,4 @@
-interface RTCIceCandidateInfo {
+export interface RTCIceCandidateInfo {
     candidate?: string;
     sdpMLineIndex?: number | null;
     sdpMid?: string | null;
@@ -1,19 +1,22 @@
-import { NativeModules } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 
 import { addListener, removeListener } from './EventEmitter';
 import Logger from './Logger';
 import MediaStream from './MediaStream';
 import MediaStreamTrack from './MediaStreamTrack';
 import MediaStreamTrackEvent from './MediaStreamTrackEvent';
+import RTCCertificate from './RTCCertificate';
 import RTCDataChannel from './RTCDataChannel';
 import RTCDataChannelEvent from './RTCDataChannelEvent';
-import RTCIceCandidate from './RTCIceCandidate';
+import RTCIceCandidate, { RTCIceCandidateInfo } from './RTCIceCandidate';
 import RTCIceCandidateEvent from './RTCIceCandidateEvent';
+import RTCQualityLimitationChangeEvent from './RTCQualityLimitationChangeEvent';
 import RTCRtpReceiveParameters from './RTCRtpReceiveParameters';
 import RTCRtpReceiver from './RTCRtpReceiver';
 import RTCRtpSendParameters from './RTCRtpSendParameters';
 import RTCRtpSender from './RTCRtpSender';
 import RTCRtpTransceiver from './RTCRtpTransceiver';
+import RTCSenderLayersChangeEvent from './RTCSenderLayersChangeEvent';
 import RTCSessionDescription, { RTCSessionDescriptionInit } from './RTCSessionDescription';
 import RTCTrackEvent from './RTCTrackEvent';
 import * as RTCUtil from './RTCUtil';
@@ -53,12 +56,51 @@ type RTCIceServer = {
     username?: string
 };
 
+type RTCSdpMediaRules = {
+    codecs?: string[], // Preferred codec order, e.g. ['VP9', 'VP8'].
+    removeCodecs?: string[],
+    maxBitrate?: number, // kbps, written as b=AS.
+    opusStereo?: boolean,
+    opusDtx?: boolean
+};
+
+type RTCSdpTransformRules = {
+    audio?: RTCSdpMediaRules,
+    video?: RTCSdpMediaRules
+};
+
+type RTCCertificateAlgorithm = {
+    name: string, // 'ECDSA' or 'RSASSA-PKCS1-v1_5'.
+    expires?: number, // ms
+    persist?: boolean // Non-standard.
+};
+
 type RTCConfiguration = {
     bundlePolicy?: 'balanced' | 'max-compat' | 'max-bundle',
     iceCandidatePoolSize?: number,
     iceServers?: RTCIceServer[],
     iceTransportPolicy?: 'all' | 'relay',
-    rtcpMuxPolicy?: 'negotiate' | 'require'
+    rtcpMuxPolicy?: 'negotiate' | 'require',
+
+    certificates?: RTCCertificate[],
+
+    // Non-standard (Android only): don't send the full SDP along with every ICE
+    // candidate / addIceCandidate result, only a version number. localDescription
+    // and remoteDescription are then fetched from native when accessed.
+    lazySessionDescriptions?: boolean,
+
+    // Non-standard (Android only): SDP munging applied natively to created offers /
+    // answers (local), including the ones setLocalDescription() creates when called
+    // without a description, and to descriptions passed to setRemoteDescription (remote).
+    sdpTransforms?: {
+        local?: RTCSdpTransformRules,
+        remote?: RTCSdpTransformRules
+    }
+};
+
+type RTCIceCandidateResult = {
+    success: boolean,
+    error?: string
 };
 
 type RTCPeerConnectionEventMap = {
@@ -72,13 +114,43 @@ type RTCPeerConnectionEventMap = {
     datachannel: RTCDataChannelEvent<'datachannel'>
     track: RTCTrackEvent<'track'>
     error: Event<'error'>
+    senderlayerschange: RTCSenderLayersChangeEvent<'senderlayerschange'>
+    qualitylimitationchange: RTCQualityLimitationChangeEvent<'qualitylimitationchange'>
 }
 
 let nextPeerConnectionId = 0;
 
+/**
+ * Sanitizes the ICE servers in the given configuration, in place.
+ */
+function sanitizeConfiguration(configuration?: RTCConfiguration): void {
+    if (configuration) {
+        const servers = configuration?.iceServers ?? [];
+
+        for (const server of servers) {
+            let urls = server.url || server.urls;
+
+            delete server.url;
+            delete server.urls;
+
+            if (!urls) {
+                continue;
+            }
+
+            if (!Array.isArray(urls)) {
+                urls = [ urls ];
+            }
+
+            // Native WebRTC does case sensitive parsing.
+            server.urls = urls.map(url => url.toLowerCase());
+        }
+
+        // Filter out bogus servers.
+        configuration.iceServers = servers.filter(s => s.urls);
+    }
+}
+
 export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEventMap> {
-    localDescription: RTCSessionDescription | null = null;
-    remoteDescription: RTCSessionDescription | null = null;
     signalingState: RTCSignalingState = 'stable';
     iceGatheringState: RTCIceGatheringState = 'new';
     connectionState: RTCPeerConnectionState = 'new';
@@ -89,37 +161,90 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
     _remoteStreams: Map<string, MediaStream>;
     _pendingTrackEvents: any[];
 
-    constructor(configuration?: RTCConfiguration) {
-        super();
+    _localDescription: RTCSessionDescription | null = null;
+    _remoteDescription: RTCSessionDescription | null = null;
 
-        this._pcId = nextPeerConnectionId++;
+    // Description versions, only reported by native when lazySessionDescriptions
+    // is enabled: the latest known version and the version of the cached value.
+    _localSdpVersion = 0;
+    _localSdpCachedVersion = 0;
+    _remoteSdpVersion = 0;
+    _remoteSdpCachedVersion = 0;
 
-        // Sanitize ICE servers.
-        if (configuration) {
-            const servers = configuration?.iceServers ?? [];
+    /**
+     * Non-standard (Android only): keeps `size` PeerConnections created in the
+     * background with the given configuration, so constructing an RTCPeerConnection
+     * with an equal configuration can take one instead of creating it on demand.
+     * Pass a size of 0 (or call clearPrewarmed) to release them.
+     */
+    static prewarm(configuration?: RTCConfiguration, size = 1): void {
+        if (Platform.OS !== 'android') {
+            return;
+        }
 
-            for (const server of servers) {
-                let urls = server.url || server.urls;
+        sanitizeConfiguration(configuration);
+        WebRTCModule.peerConnectionPoolConfigure(configuration, size);
+    }
+
+    /**
+     * Generates a DTLS certificate which can be passed in RTCConfiguration.certificates
+     * (Android only). Non-standard: a cached certificate of the same type and
+     * `expires` is returned if it's still valid for at least a day (or half of
+     * `expires`, if shorter), and with `persist` it's kept in app storage across
+     * restarts, excluded from backups.
+     */
+    static async generateCertificate(keygenAlgorithm: string | RTCCertificateAlgorithm): Promise<RTCCertificate> {
+        if (Platform.OS !== 'android') {
+            throw new Error('generateCertificate is only supported on Android');
+        }
 
-                delete server.url;
-                delete server.urls;
+        const algorithm = typeof keygenAlgorithm === 'string' ? { name: keygenAlgorithm } : keygenAlgorithm;
+        const { name, expires, persist } = algorithm;
+        let keyType;
+
+        switch (name) {
+            case 'ECDSA':
+                keyType = 'ECDSA';
+                break;
+            case 'RSASSA-PKCS1-v1_5':
+                keyType = 'RSA';
+                break;
+            default:
+                throw new Error(`Unsupported algorithm: ${name}`);
+        }
 
-                if (!urls) {
-                    continue;
-                }
+        const info = await WebRTCModule.peerConnectionGenerateCertificate({ keyType, expires, persist });
 
-                if (!Array.isArray(urls)) {
-                    urls = [ urls ];
-                }
+        return new RTCCertificate(info);
+    }
 
-                // Native WebRTC does case sensitive parsing.
-                server.urls = urls.map(url => url.toLowerCase());
-            }
+    /**
+     * Non-standard (Android only): drops all generated certificates, including the
+     * persisted ones.
+     */
+    static clearCertificates(): void {
+        if (Platform.OS !== 'android') {
+            return;
+        }
 
-            // Filter out bogus servers.
-            configuration.iceServers = servers.filter(s => s.urls);
+        WebRTCModule.peerConnectionClearCertificates();
+    }
+
+    static clearPrewarmed(): void {
+        if (Platform.OS !== 'android') {
+            return;
         }
 
+        WebRTCModule.peerConnectionPoolClear();
+    }
+
+    constructor(configuration?: RTCConfiguration) {
+        super();
+
+        this._pcId = nextPeerConnectionId++;
+
+        sanitizeConfiguration(configuration);
+
         if (!WebRTCModule.peerConnectionInit(configuration, this._pcId)) {
             throw new Error('Failed to initialize PeerConnection, check the native logs!');
         }
@@ -133,6 +258,32 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
         log.debug(`${this._pcId} ctor`);
     }
 
+    get localDescription(): RTCSessionDescription | null {
+        if (this._localSdpVersion > this._localSdpCachedVersion) {
+            this._fetchSessionDescription('local');
+        }
+
+        return this._localDescription;
+    }
+
+    set localDescription(description: RTCSessionDescription | null) {
+        this._localDescription = description;
+        this._localSdpCachedVersion = this._localSdpVersion;
+    }
+
+    get remoteDescription(): RTCSessionDescription | null {
+        if (this._remoteSdpVersion > this._remoteSdpCachedVersion) {
+            this._fetchSessionDescription('remote');
+        }
+
+        return this._remoteDescription;
+    }
+
+    set remoteDescription(description: RTCSessionDescription | null) {
+        this._remoteDescription = description;
+        this._remoteSdpCachedVersion = this._remoteSdpVersion;
+    }
+
     get onconnectionstatechange() {
         return getEventAttributeValue(this, 'connectionstatechange');
     }
@@ -224,20 +375,7 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
 
         log.debug(`${this._pcId} createOffer OK`);
 
-        newTransceivers?.forEach(t => {
-            const { transceiverOrder, transceiver } = t;
-            const newSender = new RTCRtpSender({ ...transceiver.sender, track: null });
-            const remoteTrack
-                = transceiver.receiver.track ? new MediaStreamTrack(transceiver.receiver.track) : null;
-            const newReceiver = new RTCRtpReceiver({ ...transceiver.receiver, track: remoteTrack });
-            const newTransceiver = new RTCRtpTransceiver({
-                ...transceiver,
-                sender: newSender,
-                receiver: newReceiver,
-            });
-
-            this._insertTransceiverSorted(transceiverOrder, newTransceiver);
-        });
+        this._addNewTransceivers(newTransceivers);
 
         this._updateTransceivers(transceiversInfo);
 
@@ -257,6 +395,56 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
         return sdpInfo;
     }
 
+    /**
+     * Non-standard: creates an offer and sets it as the local description in a
+     * single native operation. Resolves with the applied local description.
+     */
+    createOfferAndSetLocalDescription(options?: RTCOfferOptions): Promise<RTCSessionDescription | null> {
+        return this._createAndSetLocalDescription('offer', RTCUtil.normalizeOfferOptions(options));
+    }
+
+    /**
+     * Non-standard: creates an answer and sets it as the local description in a
+     * single native operation. Resolves with the applied local description.
+     */
+    createAnswerAndSetLocalDescription(): Promise<RTCSessionDescription | null> {
+        return this._createAndSetLocalDescription('answer', {});
+    }
+
+    async _createAndSetLocalDescription(type: 'offer' | 'answer', options): Promise<RTCSessionDescription | null> {
+        log.debug(`${this._pcId} createAndSetLocalDescription ${type}`);
+
+        if (Platform.OS !== 'android') {
+            const desc = type === 'offer' ? await this.createOffer(options) : await this.createAnswer();
+
+            await this.setLocalDescription(desc);
+
+            return this.localDescription;
+        }
+
+        const result = await WebRTCModule.peerConnectionCreateAndSetLocalDescription(this._pcId, type, options);
+        const {
+            sdpInfo,
+            newTransceivers,
+            transceiversInfo
+        } = result;
+
+        this._updateSdpVersions(result);
+
+        if (sdpInfo.type && sdpInfo.sdp) {
+            this.localDescription = new RTCSessionDescription(sdpInfo);
+        } else {
+            this.localDescription = null;
+        }
+
+        this._addNewTransceivers(newTransceivers);
+        this._updateTransceivers(transceiversInfo, /* removeStopped */ type === 'answer');
+
+        log.debug(`${this._pcId} createAndSetLocalDescription ${type} OK`);
+
+        return this.localDescription;
+    }
+
     setConfiguration(configuration): void {
         WebRTCModule.peerConnectionSetConfiguration(configuration, this._pcId);
     }
@@ -279,10 +467,13 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
             desc = null;
         }
 
+        const result = await WebRTCModule.peerConnectionSetLocalDescription(this._pcId, desc);
         const {
             sdpInfo,
             transceiversInfo
-        } = await WebRTCModule.peerConnectionSetLocalDescription(this._pcId, desc);
+        } = result;
+
+        this._updateSdpVersions(result);
 
         if (sdpInfo.type && sdpInfo.sdp) {
             this.localDescription = new RTCSessionDescription(sdpInfo);
@@ -311,11 +502,14 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
             throw new Error(`Invalid session description: invalid type: ${desc.type}`);
         }
 
+        const result = await WebRTCModule.peerConnectionSetRemoteDescription(this._pcId, desc);
         const {
             sdpInfo,
             newTransceivers,
             transceiversInfo
-        } = await WebRTCModule.peerConnectionSetRemoteDescription(this._pcId, desc);
+        } = result;
+
+        this._updateSdpVersions(result);
 
         if (sdpInfo.type && sdpInfo.sdp) {
             this.remoteDescription = new RTCSessionDescription(sdpInfo);
@@ -323,20 +517,7 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
             this.remoteDescription = null;
         }
 
-        newTransceivers?.forEach(t => {
-            const { transceiverOrder, transceiver } = t;
-            const newSender = new RTCRtpSender({ ...transceiver.sender, track: null });
-            const remoteTrack
-                = transceiver.receiver.track ? new MediaStreamTrack(transceiver.receiver.track) : null;
-            const newReceiver = new RTCRtpReceiver({ ...transceiver.receiver, track: remoteTrack });
-            const newTransceiver = new RTCRtpTransceiver({
-                ...transceiver,
-                sender: newSender,
-                receiver: newReceiver,
-            });
-
-            this._insertTransceiverSorted(transceiverOrder, newTransceiver);
-        });
+        this._addNewTransceivers(newTransceivers);
 
         this._updateTransceivers(transceiversInfo, /* removeStopped */ desc.type === 'answer');
 
@@ -430,7 +611,87 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
             RTCUtil.deepClone(candidate)
         );
 
-        this.remoteDescription = new RTCSessionDescription(newSdp);
+        if (newSdp.sdp) {
+            this.remoteDescription = new RTCSessionDescription(newSdp);
+        } else {
+            this._updateSdpVersions(newSdp);
+        }
+    }
+
+    /**
+     * Non-standard API: adds several remote ICE candidates at once. On Android
+     * the whole batch is handled by a single native call, which is cheaper than
+     * calling {@link addIceCandidate} for each of them (e.g. during an ICE restart).
+     * The returned promise always resolves, with a result for each candidate in
+     * the same order as they were given.
+     */
+    async addIceCandidates(
+        candidates: (RTCIceCandidate | RTCIceCandidateInfo)[]
+    ): Promise<RTCIceCandidateResult[]> {
+        if (this.connectionState === 'closed') {
+            throw new Error('Peer Connection is closed');
+        }
+
+        log.debug(`${this._pcId} addIceCandidates ${candidates.length}`);
+
+        const results: RTCIceCandidateResult[] = new Array(candidates.length);
+        const pending: { index: number, candidate: RTCIceCandidate | RTCIceCandidateInfo }[] = [];
+
+        candidates.forEach((candidate, index) => {
+            if (!candidate || !candidate.candidate) {
+                // XXX end-of candidates is not implemented: https://bugs.chromium.org/p/webrtc/issues/detail?id=9218
+                results[index] = { success: true };
+            } else if ((candidate.sdpMLineIndex === null ||
+                        candidate.sdpMLineIndex === undefined) &&
+                       (candidate.sdpMid === null ||
+                        candidate.sdpMid === undefined)
+            ) {
+                results[index] = {
+                    success: false,
+                    error: '`sdpMLineIndex` and `sdpMid` must not be both null or undefined'
+                };
+            } else {
+                pending.push({ index, candidate });
+            }
+        });
+
+        if (pending.length === 0) {
+            return results;
+        }
+
+        if (Platform.OS === 'android') {
+            const batchResult = await WebRTCModule.peerConnectionAddICECandidates(
+                this._pcId,
+                pending.map(p => RTCUtil.deepClone(p.candidate))
+            );
+            const {
+                results: nativeResults,
+                sdpInfo
+            } = batchResult;
+
+            nativeResults.forEach((result: RTCIceCandidateResult, i: number) => {
+                results[pending[i].index] = result;
+            });
+
+            if (sdpInfo) {
+                if (sdpInfo.type && sdpInfo.sdp) {
+                    this.remoteDescription = new RTCSessionDescription(sdpInfo);
+                }
+            } else {
+                this._updateSdpVersions(batchResult);
+            }
+        } else {
+            await Promise.all(pending.map(async ({ index, candidate }) => {
+                try {
+                    await this.addIceCandidate(candidate);
+                    results[index] = { success: true };
+                } catch (e) {
+                    results[index] = { success: false, error: (e as Error).message };
+                }
+            }));
+        }
+
+        return results;
     }
 
     /**
@@ -746,10 +1007,13 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
 
             const sdpInfo = ev.sdp;
 
-            // Can happen when doing a rollback.
-            if (sdpInfo.type && sdpInfo.sdp) {
+            if (!sdpInfo) {
+                // Lazy session descriptions, only the version was sent.
+                this._updateSdpVersions(ev);
+            } else if (sdpInfo.type && sdpInfo.sdp) {
                 this.localDescription = new RTCSessionDescription(sdpInfo);
             } else {
+                // Can happen when doing a rollback.
                 this.localDescription = null;
             }
 
@@ -768,10 +1032,13 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
             if (this.iceGatheringState === 'complete') {
                 const sdpInfo = ev.sdp;
 
-                // Can happen when doing a rollback.
-                if (sdpInfo.type && sdpInfo.sdp) {
+                if (!sdpInfo) {
+                    // Lazy session descriptions, only the version was sent.
+                    this._updateSdpVersions(ev);
+                } else if (sdpInfo.type && sdpInfo.sdp) {
                     this.localDescription = new RTCSessionDescription(sdpInfo);
                 } else {
+                    // Can happen when doing a rollback.
                     this.localDescription = null;
                 }
 
@@ -808,6 +1075,57 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
                 track._setMutedInternal(ev.muted);
             }
         });
+
+        addListener(this, 'videoTrackViewSizeChanged', (ev: any) => {
+            const [
+                track
+            ] = this.getReceivers().map(r => r.track).filter(t => t?.id === ev.trackId);
+
+            if (track) {
+                track._setViewSizeInternal(ev.width, ev.height);
+            }
+        });
+
+        addListener(this, 'senderLayersChanged', (ev: any) => {
+            if (ev.pcId !== this._pcId) {
+                return;
+            }
+
+            const sender = this.getSenders().find(s => s.id === ev.senderId);
+
+            if (!sender) {
+                return;
+            }
+
+            sender._rtpParameters = new RTCRtpSendParameters(ev.rtpParameters);
+
+            this.dispatchEvent(new RTCSenderLayersChangeEvent('senderlayerschange', {
+                sender,
+                reason: ev.reason,
+                level: ev.level,
+                availableOutgoingBitrate: ev.availableOutgoingBitrate ?? null
+            }));
+        });
+
+        addListener(this, 'senderQualityLimitationChanged', (ev: any) => {
+            if (ev.pcId !== this._pcId) {
+                return;
+            }
+
+            const sender = this.getSenders().find(s => s.id === ev.senderId);
+
+            if (!sender) {
+                return;
+            }
+
+            this.dispatchEvent(new RTCQualityLimitationChangeEvent('qualitylimitationchange', {
+                sender,
+                reason: ev.reason,
+                previousReason: ev.previousReason,
+                durations: ev.durations ?? null,
+                resolutionChanges: ev.resolutionChanges
+            }));
+        });
     }
 
     /**
@@ -857,6 +1175,71 @@ export default class RTCPeerConnection extends EventTarget<RTCPeerConnectionEven
         return sender? true : false;
     }
 
+    /**
+     * Creates the JS objects for transceivers which native created as a side effect
+     * of an operation (createOffer, setRemoteDescription).
+     */
+    _addNewTransceivers(newTransceivers?: { transceiverOrder: number, transceiver: any }[]) {
+        newTransceivers?.forEach(t => {
+            const { transceiverOrder, transceiver } = t;
+            const newSender = new RTCRtpSender({ ...transceiver.sender, track: null });
+            const remoteTrack
+                = transceiver.receiver.track ? new MediaStreamTrack(transceiver.receiver.track) : null;
+            const newReceiver = new RTCRtpReceiver({ ...transceiver.receiver, track: remoteTrack });
+            const newTransceiver = new RTCRtpTransceiver({
+                ...transceiver,
+                sender: newSender,
+                receiver: newReceiver,
+            });
+
+            this._insertTransceiverSorted(transceiverOrder, newTransceiver);
+        });
+    }
+
+    /**
+     * Records the latest description versions reported by native, if any. A newer
+     * version invalidates the cached description, see lazySessionDescriptions.
+     */
+    _updateSdpVersions(info: { localSdpVersion?: number, remoteSdpVersion?: number }) {
+        if (typeof info.localSdpVersion === 'number') {
+            this._localSdpVersion = Math.max(this._localSdpVersion, info.localSdpVersion);
+        }
+
+        if (typeof info.remoteSdpVersion === 'number') {
+            this._remoteSdpVersion = Math.max(this._remoteSdpVersion, info.remoteSdpVersion);
+        }
+    }
+
+    /**
+     * Fetches the current local or remote description from native. Blocking!
+     */
+    _fetchSessionDescription(which: 'local' | 'remote') {
+        const sdpInfo = WebRTCModule.peerConnectionGetSessionDescription(this._pcId, which);
+
+        if (!sdpInfo) {
+            // The native PeerConnection is gone, keep whatever we had.
+            if (which === 'local') {
+                this._localSdpCachedVersion = this._localSdpVersion;
+            } else {
+                this._remoteSdpCachedVersion = this._remoteSdpVersion;
+            }
+
+            return;
+        }
+
+        this._updateSdpVersions(sdpInfo);
+
+        const description = sdpInfo.type && sdpInfo.sdp ? new RTCSessionDescription(sdpInfo) : null;
+
+        if (which === 'local') {
+            this._localDescription = description;
+            this._localSdpCachedVersion = sdpInfo.localSdpVersion;
+        } else {
+            this._remoteDescription = description;
+            this._remoteSdpCachedVersion = sdpInfo.remoteSdpVersion;
+        }
+    }
+
     /**
      * Updates transceivers after offer/answer updates if necessary.
      */
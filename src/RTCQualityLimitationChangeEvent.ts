@@ -0,0 +1,53 @@
+import type RTCRtpSender from './RTCRtpSender';
+import { Event } from './vendor/event-target-shim';
+
+type QUALITY_LIMITATION_CHANGE_EVENTS = 'qualitylimitationchange'
+
+export type RTCQualityLimitationReason = 'none' | 'cpu' | 'bandwidth' | 'other';
+
+interface IRTCQualityLimitationChangeEventInitDict extends Event.EventInit {
+    sender: RTCRtpSender;
+    reason: RTCQualityLimitationReason;
+    previousReason: RTCQualityLimitationReason;
+    durations: Record<string, number> | null;
+    resolutionChanges: number;
+}
+
+/**
+ * @eventClass
+ * This event is fired when the reason the encoder of a monitored sender is
+ * limited changes (Android only), see
+ * {@link RTCRtpSender.setQualityLimitationMonitoring}.
+ * @param {QUALITY_LIMITATION_CHANGE_EVENTS} type - The type of event.
+ * @param {IRTCQualityLimitationChangeEventInitDict} eventInitDict - The event init properties.
+ */
+export default class RTCQualityLimitationChangeEvent<
+    TEventType extends QUALITY_LIMITATION_CHANGE_EVENTS
+> extends Event<TEventType> {
+    /** @eventProperty */
+    readonly sender: RTCRtpSender;
+
+    /** @eventProperty */
+    readonly reason: RTCQualityLimitationReason;
+
+    /** @eventProperty */
+    readonly previousReason: RTCQualityLimitationReason;
+
+    /**
+     * Time in seconds spent in each state, as in qualityLimitationDurations.
+     * @eventProperty
+     */
+    readonly durations: Record<string, number> | null;
+
+    /** @eventProperty */
+    readonly resolutionChanges: number;
+
+    constructor(type: TEventType, eventInitDict: IRTCQualityLimitationChangeEventInitDict) {
+        super(type, eventInitDict);
+        this.sender = eventInitDict.sender;
+        this.reason = eventInitDict.reason;
+        this.previousReason = eventInitDict.previousReason;
+        this.durations = eventInitDict.durations;
+        this.resolutionChanges = eventInitDict.resolutionChanges;
+    }
+}
@@ -5,6 +5,7 @@ export interface RTCRtpEncodingParametersInit {
     maxBitrate?: number;
     minBitrate?: number;
     scaleResolutionDownBy?: number;
+    scalabilityMode?: string;
 }
 
 export default class RTCRtpEncodingParameters {
@@ -14,6 +15,7 @@ export default class RTCRtpEncodingParameters {
     _maxBitrate: number | null;
     _minBitrate: number | null;
     _scaleResolutionDownBy: number | null;
+    _scalabilityMode: string | null;
 
     constructor(init: RTCRtpEncodingParametersInit) {
         this.active = init.active;
@@ -22,6 +24,7 @@ export default class RTCRtpEncodingParameters {
         this._minBitrate = init.minBitrate ?? null;
         this._maxFramerate = init.maxFramerate ?? null;
         this._scaleResolutionDownBy = init.scaleResolutionDownBy ?? null;
+        this._scalabilityMode = init.scalabilityMode ?? null;
     }
 
     get rid() {
@@ -80,6 +83,14 @@ export default class RTCRtpEncodingParameters {
         }
     }
 
+    get scalabilityMode() {
+        return this._scalabilityMode;
+    }
+
+    set scalabilityMode(mode) {
+        this._scalabilityMode = mode ? mode : null;
+    }
+
     toJSON(): RTCRtpEncodingParametersInit {
         const obj = {
             active: Boolean(this.active),
@@ -105,6 +116,10 @@ export default class RTCRtpEncodingParameters {
             obj['scaleResolutionDownBy'] = this._scaleResolutionDownBy;
         }
 
+        if (this._scalabilityMode !== null) {
+            obj['scalabilityMode'] = this._scalabilityMode;
+        }
+
         return obj;
     }
 }
@@ -15,13 +15,13 @@ type DegradationPreferenceType = 'maintain-framerate'
  */
 class DegradationPreference {
     static fromNative(nativeFormat: string): DegradationPreferenceType {
-        const stringFormat = nativeFormat.toLowerCase().replace('_', '-');
+        const stringFormat = nativeFormat.toLowerCase().replace(/_/g, '-');
 
         return stringFormat as DegradationPreferenceType;
     }
 
     static toNative(format: DegradationPreferenceType): string {
-        return format.toUpperCase().replace('-', '_');
+        return format.toUpperCase().replace(/-/g, '_');
     }
 }
 
@@ -35,6 +35,8 @@ export default class RTCRtpSendParameters extends RTCRtpParameters {
     readonly transactionId: string;
     encodings: (RTCRtpEncodingParameters | RTCRtpEncodingParametersInit)[];
     degradationPreference: DegradationPreferenceType | null;
+    // Whether native reported a preference, so clearing it is sent as an explicit null.
+    _hadDegradationPreference: boolean;
 
     constructor(init: RTCRtpSendParametersInit) {
         super(init);
@@ -43,6 +45,7 @@ export default class RTCRtpSendParameters extends RTCRtpParameters {
         this.encodings = [];
         this.degradationPreference = init.degradationPreference ?
             DegradationPreference.fromNative(init.degradationPreference) : null;
+        this._hadDegradationPreference = this.degradationPreference !== null;
 
         for (const enc of init.encodings) {
             this.encodings.push(new RTCRtpEncodingParameters(enc));
@@ -57,6 +60,8 @@ export default class RTCRtpSendParameters extends RTCRtpParameters {
 
         if (this.degradationPreference !== null) {
             obj['degradationPreference'] = DegradationPreference.toNative(this.degradationPreference);
+        } else if (this._hadDegradationPreference) {
+            obj['degradationPreference'] = null;
         }
 
         return obj;
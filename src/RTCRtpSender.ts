@@ -1,4 +1,4 @@
-import { NativeModules } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 
 import MediaStreamTrack from './MediaStreamTrack';
 import RTCRtpCapabilities from './RTCRtpCapabilities';
@@ -6,6 +6,19 @@ import RTCRtpSendParameters, { RTCRtpSendParametersInit } from './RTCRtpSendPara
 
 const { WebRTCModule } = NativeModules;
 
+export type RTCLayerControllerOptions = {
+    // How often the sender stats are polled, in ms.
+    intervalMs?: number;
+    // Consecutive polls showing a bandwidth / CPU limitation before stepping down.
+    downgradePolls?: number;
+    // Consecutive polls with enough bandwidth before stepping back up.
+    upgradePolls?: number;
+    // How much more bandwidth than needed must be available to step up.
+    upgradeMargin?: number;
+    // Whether the last step halves the resolution and bitrate of the lowest layer.
+    scaleLowestLayer?: boolean;
+}
+
 
 export default class RTCRtpSender {
     _id: string;
@@ -54,6 +67,38 @@ export default class RTCRtpSender {
         this._rtpParameters = new RTCRtpSendParameters(newParameters);
     }
 
+    /**
+     * Non-standard (Android only): lets native code pause / resume the
+     * simulcast layers of this sender, or scale the lowest one, based on the
+     * available bandwidth and CPU limitations, without going through JS. The
+     * encodings set with setParameters() are the baseline. Changes are reported
+     * with the `senderlayerschange` event of the RTCPeerConnection. Pass null
+     * to stop.
+     */
+    async setLayerController(options: RTCLayerControllerOptions | null = {}): Promise<void> {
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        await WebRTCModule.senderSetLayerController(this._peerConnectionId, this._id, options);
+    }
+
+    /**
+     * Non-standard (Android only): starts / stops reporting changes of the
+     * qualityLimitationReason of this sender's encoder, through the
+     * `qualitylimitationchange` event of the RTCPeerConnection. Together with
+     * `degradationPreference` in setParameters() this allows e.g. screen share
+     * senders to keep their resolution while camera senders keep their frame
+     * rate, and to react when the encoder is CPU limited.
+     */
+    async setQualityLimitationMonitoring(enabled: boolean, intervalMs = 1000): Promise<void> {
+        if (Platform.OS !== 'android') {
+            return;
+        }
+
+        await WebRTCModule.senderSetQualityLimitationMonitoring(this._peerConnectionId, this._id, enabled, intervalMs);
+    }
+
     getStats() {
         return WebRTCModule.senderGetStats(this._peerConnectionId, this._id).then(data =>
             /* On both Android and iOS it is faster to construct a single
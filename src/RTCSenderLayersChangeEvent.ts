@@ -0,0 +1,48 @@
+import type RTCRtpSender from './RTCRtpSender';
+import { Event } from './vendor/event-target-shim';
+
+type SENDER_LAYERS_CHANGE_EVENTS = 'senderlayerschange'
+
+export type SenderLayersChangeReason = 'bandwidth' | 'cpu' | 'recovered';
+
+interface IRTCSenderLayersChangeEventInitDict extends Event.EventInit {
+    sender: RTCRtpSender;
+    reason: SenderLayersChangeReason;
+    level: number;
+    availableOutgoingBitrate: number | null;
+}
+
+/**
+ * @eventClass
+ * This event is fired when the native layer controller of a sender changed its
+ * encodings (Android only), see {@link RTCRtpSender.setLayerController}.
+ * @param {SENDER_LAYERS_CHANGE_EVENTS} type - The type of event.
+ * @param {IRTCSenderLayersChangeEventInitDict} eventInitDict - The event init properties.
+ */
+export default class RTCSenderLayersChangeEvent<
+    TEventType extends SENDER_LAYERS_CHANGE_EVENTS
+> extends Event<TEventType> {
+    /** @eventProperty */
+    readonly sender: RTCRtpSender;
+
+    /** @eventProperty */
+    readonly reason: SenderLayersChangeReason;
+
+    /**
+     * Number of steps below the configured encodings: each step pauses the
+     * highest remaining layer, the last one scales down the lowest layer.
+     * @eventProperty
+     */
+    readonly level: number;
+
+    /** @eventProperty */
+    readonly availableOutgoingBitrate: number | null;
+
+    constructor(type: TEventType, eventInitDict: IRTCSenderLayersChangeEventInitDict) {
+        super(type, eventInitDict);
+        this.sender = eventInitDict.sender;
+        this.reason = eventInitDict.reason;
+        this.level = eventInitDict.level;
+        this.availableOutgoingBitrate = eventInitDict.availableOutgoingBitrate;
+    }
+}
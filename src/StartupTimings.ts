@@ -0,0 +1,24 @@
+import { NativeModules, Platform } from 'react-native';
+
+const { WebRTCModule } = NativeModules;
+
+export type StartupTimings = {
+    // Duration of each initialization phase, in ms.
+    phases: { [phase: string]: number };
+    // Sum of the phase durations, in ms.
+    measured: number;
+    // Time from the module creation to the end of the initialization, in ms.
+    total?: number;
+}
+
+/**
+ * Non-standard: resolves with the duration of each native module initialization phase, once the
+ * initialization is complete. Only implemented on Android, resolves with null on other platforms.
+ */
+export default async function getStartupTimings(): Promise<StartupTimings | null> {
+    if (Platform.OS !== 'android') {
+        return null;
+    }
+
+    return WebRTCModule.getStartupTimings();
+}
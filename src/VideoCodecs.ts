@@ -0,0 +1,94 @@
+import { NativeModules, Platform } from 'react-native';
+
+import { addListener } from './EventEmitter';
+import VideoEncoderFallbackEvent from './VideoEncoderFallbackEvent';
+import { EventTarget, getEventAttributeValue, setEventAttributeValue } from './vendor/event-target-shim';
+
+const { WebRTCModule } = NativeModules;
+
+export type CodecLatencyBucket = {
+    // Upper bound in ms, null for the last bucket.
+    le: number | null;
+    count: number;
+}
+
+export type CodecTelemetryEntry = {
+    codec: string;
+    implementationName: string;
+    frames: number;
+    keyFrames: number;
+    bytes: number;
+    latency: {
+        count: number;
+        mean: number;
+        max: number;
+        buckets: CodecLatencyBucket[];
+    };
+    // Produced bitrate over the target bitrate, encoders only.
+    bitrateAccuracy?: number;
+}
+
+export type CodecTelemetry = {
+    encoders: CodecTelemetryEntry[];
+    decoders: CodecTelemetryEntry[];
+}
+
+type VideoCodecsEventMap = {
+    encoderfallback: VideoEncoderFallbackEvent<'encoderfallback'>
+    encoderdegraded: VideoEncoderFallbackEvent<'encoderdegraded'>
+}
+
+/**
+ * Non-standard: events and information about the native video codecs.
+ */
+class VideoCodecs extends EventTarget<VideoCodecsEventMap> {
+    constructor() {
+        super();
+
+        addListener(this, 'videoEncoderFallback', (ev: any) => {
+            this.dispatchEvent(new VideoEncoderFallbackEvent('encoderfallback', ev));
+        });
+        addListener(this, 'videoEncoderDegraded', (ev: any) => {
+            this.dispatchEvent(new VideoEncoderFallbackEvent('encoderdegraded', ev));
+        });
+    }
+
+    get onencoderfallback() {
+        return getEventAttributeValue(this, 'encoderfallback');
+    }
+
+    set onencoderfallback(value) {
+        setEventAttributeValue(this, 'encoderfallback', value);
+    }
+
+    get onencoderdegraded() {
+        return getEventAttributeValue(this, 'encoderdegraded');
+    }
+
+    set onencoderdegraded(value) {
+        setEventAttributeValue(this, 'encoderdegraded', value);
+    }
+
+    /**
+     * Android only: per-frame timing of the hardware encoders and decoders, collected when
+     * `enableCodecTelemetry` is set in WebRTCModuleOptions. Resolves with null on other platforms.
+     */
+    async getTelemetry(): Promise<CodecTelemetry | null> {
+        if (Platform.OS !== 'android') {
+            return null;
+        }
+
+        return WebRTCModule.getCodecTelemetry();
+    }
+
+    /**
+     * Android only: clears the collected codec telemetry.
+     */
+    resetTelemetry(): void {
+        if (Platform.OS === 'android') {
+            WebRTCModule.resetCodecTelemetry();
+        }
+    }
+}
+
+export default new VideoCodecs();
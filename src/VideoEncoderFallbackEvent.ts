@@ -0,0 +1,41 @@
+import { Event } from './vendor/event-target-shim';
+
+type VIDEO_ENCODER_FALLBACK_EVENTS = 'encoderfallback' | 'encoderdegraded'
+
+export type VideoEncoderFallbackReason = 'encodeErrors' | 'lowFrameRate' | 'highQp';
+
+interface IVideoEncoderFallbackEventInitDict extends Event.EventInit {
+    codec: string;
+    implementationName: string;
+    reason: VideoEncoderFallbackReason;
+}
+
+/**
+ * @eventClass
+ * This event is fired when a hardware video encoder failed during a call
+ * (Android only). `encoderfallback` means the software encoder took over.
+ * `encoderdegraded` means the codec has no software encoder (H.264), so the
+ * failing hardware encoder is still used and the app should renegotiate
+ * another codec.
+ * @param {VIDEO_ENCODER_FALLBACK_EVENTS} type - The type of event.
+ * @param {IVideoEncoderFallbackEventInitDict} eventInitDict - The event init properties.
+ */
+export default class VideoEncoderFallbackEvent<
+    TEventType extends VIDEO_ENCODER_FALLBACK_EVENTS
+> extends Event<TEventType> {
+    /** @eventProperty */
+    readonly codec: string;
+
+    /** @eventProperty */
+    readonly implementationName: string;
+
+    /** @eventProperty */
+    readonly reason: VideoEncoderFallbackReason;
+
+    constructor(type: TEventType, eventInitDict: IVideoEncoderFallbackEventInitDict) {
+        super(type, eventInitDict);
+        this.codec = eventInitDict.codec;
+        this.implementationName = eventInitDict.implementationName;
+        this.reason = eventInitDict.reason;
+    }
+}
@@ -14,10 +14,17 @@ import { setupNativeEvents } from './EventEmitter';
 import Logger from './Logger';
 import mediaDevices from './MediaDevices';
 import MediaStream from './MediaStream';
-import MediaStreamTrack, { type MediaTrackSettings } from './MediaStreamTrack';
+import MediaStreamTrack, {
+    type AdaptiveCaptureOptions,
+    type CameraSwitchStats,
+    type MediaStreamTrackViewSize,
+    type MediaTrackSettings,
+    type StaticContentDroppingOptions
+} from './MediaStreamTrack';
 import MediaStreamTrackEvent from './MediaStreamTrackEvent';
 import permissions from './Permissions';
 import RTCAudioSession from './RTCAudioSession';
+import RTCCertificate from './RTCCertificate';
 import RTCDataPacketCryptor, { RTCEncryptedPacket } from './RTCDataPacketCryptor';
 import RTCDataPacketCryptorFactory from './RTCDataPacketCryptorFactory';
 import RTCErrorEvent from './RTCErrorEvent';
@@ -32,11 +39,13 @@ import RTCPeerConnection from './RTCPeerConnection';
 import RTCRtpEncodingParameters, { type RTCRtpEncodingParametersInit } from './RTCRtpEncodingParameters';
 import RTCRtpReceiver from './RTCRtpReceiver';
 import RTCRtpSendParameters, { type RTCRtpSendParametersInit } from './RTCRtpSendParameters';
-import RTCRtpSender from './RTCRtpSender';
+import RTCRtpSender, { type RTCLayerControllerOptions } from './RTCRtpSender';
 import RTCRtpTransceiver from './RTCRtpTransceiver';
 import RTCSessionDescription from './RTCSessionDescription';
 import RTCView, { type RTCVideoViewProps, type RTCIOSPIPOptions } from './RTCView';
 import ScreenCapturePickerView from './ScreenCapturePickerView';
+import getStartupTimings, { type StartupTimings } from './StartupTimings';
+import videoCodecs from './VideoCodecs';
 import { Event, EventTarget, getEventAttributeValue, setEventAttributeValue } from './vendor/event-target-shim';
 
 Logger.enable(`${Logger.ROOT_PREFIX}:*`);
@@ -49,6 +58,7 @@ export {
     EventTarget,
     getEventAttributeValue,
     setEventAttributeValue,
+    RTCCertificate,
     RTCIceCandidate,
     RTCPeerConnection,
     RTCSessionDescription,
@@ -75,12 +85,20 @@ export {
     MediaStream,
     MediaStreamTrack,
     type MediaTrackSettings,
+    type MediaStreamTrackViewSize,
+    type CameraSwitchStats,
+    type AdaptiveCaptureOptions,
+    type StaticContentDroppingOptions,
     type RTCRtpEncodingParametersInit,
     type RTCRtpSendParametersInit,
+    type RTCLayerControllerOptions,
     type RTCVideoViewProps,
     type RTCIOSPIPOptions,
+    type StartupTimings,
     mediaDevices,
     permissions,
+    videoCodecs,
+    getStartupTimings,
     registerGlobals,
     startIOSPIP,
     stopIOSPIP,
@@ -106,6 +124,7 @@ function registerGlobals(): void {
     global.navigator.mediaDevices.getDisplayMedia = mediaDevices.getDisplayMedia.bind(mediaDevices);
     global.navigator.mediaDevices.enumerateDevices = mediaDevices.enumerateDevices.bind(mediaDevices);
 
+    global.RTCCertificate = RTCCertificate;
     global.RTCIceCandidate = RTCIceCandidate;
     global.RTCPeerConnection = RTCPeerConnection;
     global.RTCRtpReceiver = RTCRtpReceiver;